@@ -219,6 +219,24 @@ module.exports = function (grunt) {
                 }]
             }
         },
+        // Pre-compressed siblings served by the StaticResourcesProductionFilter
+        compress: {
+            dist: {
+                options: {
+                    mode: 'gzip',
+                    level: 9
+                },
+                files: [{
+                    expand: true,
+                    cwd: '<%= yeoman.dist %>',
+                    src: ['**/*.{html,js,css,json,svg,ttf}'],
+                    dest: '<%= yeoman.dist %>',
+                    rename: function (dest, src) {
+                        return dest + '/' + src + '.gz';
+                    }
+                }]
+            }
+        },
         // Put files not handled in other tasks here
         copy: {
             fonts: {
@@ -358,7 +376,8 @@ module.exports = function (grunt) {
         'uglify',
         'rev',
         'usemin',
-        'htmlmin'
+        'htmlmin',
+        'compress:dist'
     ]);
 
 	grunt.registerTask('appendSkipBower', 'Force skip of bower for Gradle', function () {
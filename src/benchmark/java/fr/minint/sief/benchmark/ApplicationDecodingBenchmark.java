@@ -0,0 +1,87 @@
+package fr.minint.sief.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DbRefProxyHandler;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.DbRefResolverCallback;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+import fr.minint.sief.domain.Application;
+
+/**
+ * Decoding of an application read from MongoDB by the Spring Data converter, as configured by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ApplicationDecodingBenchmark {
+
+    private MappingMongoConverter converter;
+
+    private DBObject document;
+
+    @Setup
+    public void setup() {
+        CustomConversions conversions = new CustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.setInitialEntitySet(Collections.singleton(Application.class));
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(new NoDbRefResolver(), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        document = new BasicDBObject();
+        converter.write(ApplicationFixtures.application(1), document);
+    }
+
+    @Benchmark
+    public Application read() {
+        return converter.read(Application.class, document);
+    }
+
+    /**
+     * An application has no reference to other documents, so no database is needed to resolve them.
+     */
+    private static class NoDbRefResolver implements DbRefResolver {
+
+        @Override
+        public Object resolveDbRef(MongoPersistentProperty property, DBRef dbref, DbRefResolverCallback callback,
+                DbRefProxyHandler proxyHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DBRef createDbRef(org.springframework.data.mongodb.core.mapping.DBRef annotation,
+                MongoPersistentEntity<?> entity, Object id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DBObject fetch(DBRef dbRef) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package fr.minint.sief.benchmark;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+import fr.minint.sief.domain.Address;
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.Document;
+import fr.minint.sief.domain.Identity;
+import fr.minint.sief.domain.Person;
+import fr.minint.sief.domain.Project;
+import fr.minint.sief.domain.enumeration.ActivityType;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+import fr.minint.sief.domain.enumeration.ApplicationType;
+import fr.minint.sief.domain.enumeration.DocumentType;
+import fr.minint.sief.domain.enumeration.MaritalStatus;
+import fr.minint.sief.domain.enumeration.PersonType;
+import fr.minint.sief.domain.enumeration.ResourceType;
+import fr.minint.sief.domain.enumeration.SexType;
+
+/**
+ * Applications as filled by the applicants: all the steps done, with documents and a family of five persons.
+ */
+final class ApplicationFixtures {
+
+    private static final DateTime START = new DateTime(2015, 9, 1, 8, 30);
+
+    private ApplicationFixtures() {
+    }
+
+    static List<Application> applications(int count) {
+        List<Application> applications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            applications.add(application(i));
+        }
+        return applications;
+    }
+
+    static Application application(int i) {
+        DateTime date = START.plusHours(i);
+        Application application = new Application();
+        application.setId(Integer.toHexString(0x10000000 + i));
+        application.setVersion(3L);
+        application.setEmail("user" + i + "@example.com");
+        application.setUserId("user" + i);
+        application.setLangKey("fr");
+        application.setNature(ApplicationNature.sejour_etudiant);
+        application.setType(ApplicationType.premiere);
+        application.setStatut(ApplicationStatus.scheduled);
+        application.setCreationDate(date);
+        application.setModificationDate(date.plusDays(3));
+        application.setPaymentDate(date.plusDays(1));
+        application.setAdmissibilityDate(date.plusDays(2));
+        application.setRdvDate(date.plusDays(20));
+        application.setIdentity(identity(i, true));
+        application.setAddress(address(i));
+        application.setProject(project(i));
+        return application;
+    }
+
+    static Identity identity(int i, boolean withFamily) {
+        Identity identity = new Identity();
+        identity.setForeignerNumber(Integer.toString(1000000 + i));
+        identity.setLastName("Kim" + i);
+        identity.setFirstName("Min-jun");
+        identity.setSex(SexType.M);
+        identity.setBirthDate(START.minusYears(20).plusDays(i));
+        identity.setBirthCity("Séoul");
+        identity.setBirthCountry("KR");
+        identity.setNationality("KR");
+        identity.setPassportNumber("M" + (10000000 + i));
+        identity.setResidencyCountry("KR");
+        identity.setMaritalStatus(MaritalStatus.single);
+        identity.setBrothersNumber(2);
+        identity.setActivity(ActivityType.student);
+        identity.setDocuments(documents(i, DocumentType.passport, DocumentType.birthAct));
+        if (withFamily) {
+            Map<PersonType, List<Person>> family = new EnumMap<>(PersonType.class);
+            family.put(PersonType.parents, persons(i, 2));
+            family.put(PersonType.brothers, persons(i, 2));
+            family.put(PersonType.childs, new ArrayList<>());
+            identity.setFamily(family);
+        }
+        return identity;
+    }
+
+    private static List<Person> persons(int i, int count) {
+        List<Person> persons = new ArrayList<>(count);
+        for (int j = 0; j < count; j++) {
+            Person person = new Person();
+            person.setIdentity(identity(i * 10 + j, false));
+            person.setAddress(address(i));
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    private static Address address(int i) {
+        Address address = new Address();
+        address.setNumber(Integer.toString(i % 100 + 1));
+        address.setStreet("Seosomun-ro");
+        address.setPostalCode("03741");
+        address.setCity("Séoul");
+        address.setCountry("KR");
+        address.setPhone("+82 2 3149 4300");
+        address.setEmail("user" + i + "@example.com");
+        address.setDocuments(documents(i, DocumentType.residency));
+        return address;
+    }
+
+    private static Project project(int i) {
+        Project project = new Project();
+        project.setComingDate(START.plusMonths(2));
+        project.setUniversity("Université Paris-Sorbonne");
+        project.setTrainingType("master");
+        project.setTraining("Lettres modernes");
+        project.setTrainingStart(START.plusMonths(3));
+        project.setTrainingLength(2);
+        project.setResourceType(ResourceType.bourse);
+        project.setResourceAmount(615);
+        project.setDocuments(documents(i, DocumentType.inscriptionCertificate, DocumentType.resourceProof));
+        return project;
+    }
+
+    /**
+     * Validated documents, so that looking for a document to validate goes through all of them
+     */
+    private static List<Document> documents(int i, DocumentType... types) {
+        List<Document> documents = new ArrayList<>(types.length);
+        for (DocumentType type : types) {
+            Document document = new Document();
+            document.setId(Integer.toString(i, Character.MAX_RADIX) + type.ordinal());
+            document.setType(type);
+            document.setName(type + ".pdf");
+            String checksum = String.format("%064x", (long) i * 31 + type.ordinal());
+            document.setChecksum(checksum);
+            document.setFileName("api/documents/" + checksum);
+            document.setSize(250000);
+            document.setValidation(START.plusDays(5));
+            documents.add(document);
+        }
+        return documents;
+    }
+}
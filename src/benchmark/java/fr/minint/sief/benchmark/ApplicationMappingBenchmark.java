@@ -0,0 +1,80 @@
+package fr.minint.sief.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.Person;
+import fr.minint.sief.domain.enumeration.PersonType;
+import fr.minint.sief.web.rest.dto.ApplicationDTO;
+import fr.minint.sief.web.rest.dto.PersonDTO;
+import fr.minint.sief.web.rest.mapper.ApplicationMapper;
+import fr.minint.sief.web.rest.mapper.IdentityMapper;
+
+/**
+ * MapStruct conversions between the application and its DTO, the family being mapped by hand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationMappingBenchmark {
+
+    private AnnotationConfigApplicationContext mappers;
+
+    private ApplicationMapper applicationMapper;
+
+    private IdentityMapper identityMapper;
+
+    private Application application;
+
+    private ApplicationDTO applicationDTO;
+
+    private Map<PersonType, List<Person>> family;
+
+    @Setup
+    public void setup() {
+        mappers = new AnnotationConfigApplicationContext(ApplicationMapper.class.getPackage().getName());
+        applicationMapper = mappers.getBean(ApplicationMapper.class);
+        identityMapper = mappers.getBean(IdentityMapper.class);
+        application = ApplicationFixtures.application(1);
+        applicationDTO = applicationMapper.applicationToApplicationDTO(application);
+        family = application.getIdentity().getFamily();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mappers.close();
+    }
+
+    @Benchmark
+    public ApplicationDTO applicationToApplicationDTO() {
+        return applicationMapper.applicationToApplicationDTO(application);
+    }
+
+    @Benchmark
+    public Application applicationDTOToApplication() {
+        return applicationMapper.applicationDTOToApplication(applicationDTO);
+    }
+
+    @Benchmark
+    public Map<PersonType, List<PersonDTO>> mapFamily() {
+        return identityMapper.mapFamily(family);
+    }
+}
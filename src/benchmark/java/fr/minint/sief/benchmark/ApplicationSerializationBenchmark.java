@@ -0,0 +1,67 @@
+package fr.minint.sief.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.minint.sief.config.JacksonConfiguration;
+import fr.minint.sief.web.rest.dto.ApplicationDTO;
+import fr.minint.sief.web.rest.mapper.ApplicationMapper;
+
+/**
+ * Jackson serialization of the application lists returned by the REST API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private AnnotationConfigApplicationContext mappers;
+
+    private ObjectMapper objectMapper;
+
+    private List<ApplicationDTO> applications;
+
+    @Setup
+    public void setup() {
+        mappers = new AnnotationConfigApplicationContext(ApplicationMapper.class.getPackage().getName());
+        ApplicationMapper applicationMapper = mappers.getBean(ApplicationMapper.class);
+        objectMapper = new ObjectMapper().registerModule(new JacksonConfiguration().jacksonJodaModule());
+        applications = ApplicationFixtures.applications(size).stream()
+                .map(applicationMapper::applicationToApplicationDTO)
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        mappers.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(applications);
+    }
+}
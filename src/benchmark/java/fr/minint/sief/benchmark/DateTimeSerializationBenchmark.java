@@ -0,0 +1,126 @@
+package fr.minint.sief.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+
+import fr.minint.sief.domain.util.CustomDateTimeDeserializer;
+import fr.minint.sief.domain.util.CustomDateTimeSerializer;
+
+/**
+ * Serialization of the dates of a worklist, about 13 per application, with the Jackson serializers of the
+ * application against the former ones formatting through a UTC DateTime and a String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeSerializationBenchmark {
+
+    private static final int DATES = 13 * 1000;
+
+    private static final TypeReference<List<DateTime>> DATE_LIST = new TypeReference<List<DateTime>>() {
+    };
+
+    private ObjectMapper mapper;
+
+    private ObjectMapper legacyMapper;
+
+    private List<DateTime> dates;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        JodaModule module = new JodaModule();
+        module.addSerializer(DateTime.class, new CustomDateTimeSerializer());
+        module.addDeserializer(DateTime.class, new CustomDateTimeDeserializer());
+        mapper = new ObjectMapper().registerModule(module);
+
+        JodaModule legacyModule = new JodaModule();
+        legacyModule.addSerializer(DateTime.class, new LegacyDateTimeSerializer());
+        legacyModule.addDeserializer(DateTime.class, new LegacyDateTimeDeserializer());
+        legacyMapper = new ObjectMapper().registerModule(legacyModule);
+
+        dates = new ArrayList<>(DATES);
+        DateTime date = new DateTime(2015, 9, 1, 8, 30);
+        for (int i = 0; i < DATES; i++) {
+            dates.add(date.plusMinutes(i * 37));
+        }
+        json = mapper.writeValueAsBytes(dates);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(dates);
+    }
+
+    @Benchmark
+    public byte[] serializeLegacy() throws IOException {
+        return legacyMapper.writeValueAsBytes(dates);
+    }
+
+    @Benchmark
+    public List<DateTime> deserialize() throws IOException {
+        return mapper.readValue(json, DATE_LIST);
+    }
+
+    @Benchmark
+    public List<DateTime> deserializeLegacy() throws IOException {
+        return legacyMapper.readValue(json, DATE_LIST);
+    }
+
+    /**
+     * The serializer before the dates were written from their milliseconds.
+     */
+    static class LegacyDateTimeSerializer extends JsonSerializer<DateTime> {
+
+        private static DateTimeFormatter formatter = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+        @Override
+        public void serialize(DateTime value, JsonGenerator generator, SerializerProvider serializerProvider)
+                throws IOException {
+            generator.writeString(formatter.print(value.toDateTime(DateTimeZone.UTC)));
+        }
+    }
+
+    /**
+     * The deserializer before the UTC dates were read from the characters of the parser.
+     */
+    static class LegacyDateTimeDeserializer extends JsonDeserializer<DateTime> {
+
+        @Override
+        public DateTime deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            return ISODateTimeFormat.dateTimeParser().parseDateTime(jp.getText().trim());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package fr.minint.sief.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.minint.sief.domain.Identity;
+
+/**
+ * Comparisons of identities done when an applicant saves an application, and the document validation check of
+ * the agent worklists, on identities whose documents are all validated so that every document is looked at.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentityBenchmark {
+
+    private Identity identity;
+
+    private Identity copy;
+
+    @Setup
+    public void setup() {
+        identity = ApplicationFixtures.identity(1, true);
+        copy = ApplicationFixtures.identity(1, true);
+    }
+
+    @Benchmark
+    public boolean equalsWithoutFamily() {
+        return identity.equalsWithoutFamily(copy);
+    }
+
+    @Benchmark
+    public int hashCodeWithFamily() {
+        return identity.hashCode();
+    }
+
+    @Benchmark
+    public boolean hasDocumentToValidate() {
+        return identity.hasDocumentToValidate();
+    }
+}
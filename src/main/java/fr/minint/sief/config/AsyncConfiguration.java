@@ -13,7 +13,10 @@ import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 import java.util.concurrent.Executor;
 
@@ -23,7 +26,7 @@ import fr.minint.sief.async.ExceptionHandlingAsyncTaskExecutor;
 @EnableAsync
 @EnableScheduling
 @Profile("!" + Constants.SPRING_PROFILE_FAST)
-public class AsyncConfiguration implements AsyncConfigurer, EnvironmentAware {
+public class AsyncConfiguration implements AsyncConfigurer, SchedulingConfigurer, EnvironmentAware {
 
     private final Logger log = LoggerFactory.getLogger(AsyncConfiguration.class);
 
@@ -46,6 +49,24 @@ public class AsyncConfiguration implements AsyncConfigurer, EnvironmentAware {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * The scheduled tasks run on a pool, so a long one (the mail dispatcher draining the outbox) does not
+     * hold back the others (the expiry of the appointment holds every second).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        log.debug("Creating Task Scheduler");
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(propertyResolver.getProperty("schedulerPoolSize", Integer.class, 8));
+        scheduler.setThreadNamePrefix("sejour-Scheduler-");
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
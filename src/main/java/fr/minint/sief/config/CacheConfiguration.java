@@ -1,37 +1,110 @@
 package fr.minint.sief.config;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.guava.GuavaCache;
+import org.springframework.cache.guava.GuavaCacheManager;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.cache.support.NoOpCacheManager; 
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
 
-import javax.annotation.PreDestroy;
-import javax.inject.Inject;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import fr.minint.sief.config.cache.StoreByValueGuavaCache;
 
 @Configuration
 @EnableCaching
 @AutoConfigureAfter(value = {MetricsConfiguration.class, DatabaseConfiguration.class})
 @Profile("!" + Constants.SPRING_PROFILE_FAST)
-public class CacheConfiguration {
+public class CacheConfiguration implements EnvironmentAware {
+
+    /**
+     * Users by email, evicted when a user is saved or deleted. The users are stored as documents, so each read gets
+     * its own copy, and they expire quickly as the other instances don't evict them.
+     */
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+
+    /**
+     * Authorities by name, only changed by database scripts so they just expire.
+     */
+    public static final String AUTHORITIES = "authorities";
+
+    private static final String ENV_CACHE = "cache.";
 
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
-    private CacheManager cacheManager;
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private MongoConverter mongoConverter;
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    private GuavaCacheManager cacheManager;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, ENV_CACHE);
+    }
 
     @PreDestroy
     public void destroy() {
         log.info("Closing Cache Manager");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     }
 
     @Bean
     public CacheManager cacheManager() {
-        log.debug("No cache");
-        cacheManager = new NoOpCacheManager();
+        long maxEntries = propertyResolver.getProperty("maxEntries", Long.class, 10000L);
+        long timeToLiveSeconds = propertyResolver.getProperty("timeToLiveSeconds", Long.class, 3600L);
+        long usersTimeToLiveSeconds = propertyResolver.getProperty("usersTimeToLiveSeconds", Long.class, 30L);
+        log.debug("Starting Guava cache manager, {} entries per cache for {} seconds, users for {} seconds",
+            maxEntries, timeToLiveSeconds, usersTimeToLiveSeconds);
+        cacheManager = new GuavaCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache createGuavaCache(String name) {
+                if (!USERS_BY_EMAIL.equals(name)) {
+                    return super.createGuavaCache(name);
+                }
+                return new StoreByValueGuavaCache(name, CacheBuilder.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterWrite(usersTimeToLiveSeconds, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build(), isAllowNullValues(), mongoConverter);
+            }
+        };
+        cacheManager.setCacheBuilder(CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+            .recordStats());
+        cacheManager.setCacheNames(Arrays.asList(USERS_BY_EMAIL, AUTHORITIES));
+        cacheManager.getCacheNames().forEach(this::registerMetrics);
         return cacheManager;
     }
+
+    private void registerMetrics(String name) {
+        Cache<Object, Object> cache = ((GuavaCache) cacheManager.getCache(name)).getNativeCache();
+        metricRegistry.register(MetricRegistry.name("cache", name, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "hit-ratio"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metricRegistry.register(MetricRegistry.name("cache", name, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "size"), (Gauge<Long>) cache::size);
+    }
 }
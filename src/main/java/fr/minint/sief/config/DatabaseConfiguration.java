@@ -104,7 +104,6 @@ public class DatabaseConfiguration extends AbstractMongoConfiguration  {
 		db.getCollection("JHI_AUTHORITY").insertOne(Document.parse("{_id : 'ROLE_USER'}"));
 		
         db.createCollection("JHI_USER");
-		db.getCollection("JHI_USER").createIndex(Document.parse("{'email' : 1}"));
 		db.getCollection("JHI_USER").insertOne(Document.parse("{_id : 'user-blanc', _class : 'fr.minint.sief.domain.User', password : '$2a$10$h.KqlemFHFF0b.Xure4weumMVs/c0hFCQtj/05y8zGO7bZDUKHiAe',"
 				+ "email : 'michele.blanc@sief.com', type : 'agent',"
 				+ "identity : {last_name: 'Blanc', first_name: 'Michèle'},"
@@ -152,7 +151,6 @@ public class DatabaseConfiguration extends AbstractMongoConfiguration  {
 				+ "authorities : [{_id : 'ROLE_USAGER'}], activated : true, lang_key : 'fr', created_by : 'zayat.noura@gmail.com', created_date : ISODate('2055-01-02T09:22:39.031Z'), last_modified_by : 'zayat.noura@gmail.com', last_modified_date : ISODate('2015-11-12T09:42:10.211Z')}"));
 		
 		db.createCollection("APPLICATION");
-		db.getCollection("APPLICATION").createIndex(Document.parse("{'email' : 1}"));
 		db.getCollection("APPLICATION").insertOne(Document.parse("{ '_id' : ObjectId('56534019151b140b21034488'), '_class' : 'fr.minint.sief.domain.Application', "
 				+ "'email' : 'zayat.noura@gmail.com', 'userId' : '56533ccb151b140ad77274b2', "
 				+ "'nature' : 'sejour_etudiant', 'type' : 'premiere', 'statut' : 'validated', 'creation_date' : ISODate('2005-02-02T11:44:33.314Z'), 'modification_date' : ISODate('2005-02-02T11:49:38.197Z'), "
@@ -0,0 +1,55 @@
+package fr.minint.sief.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+import fr.minint.sief.service.util.DocumentStore;
+import fr.minint.sief.service.util.GridFsDocumentStore;
+import fr.minint.sief.service.util.LocalDocumentStore;
+
+/**
+ * Configuration of the store of the uploaded documents, selected by the <code>documents.store</code> property:
+ * <code>local</code> (the default) for the local file system, <code>gridfs</code> for GridFS.
+ */
+@Configuration
+public class DocumentStoreConfiguration implements EnvironmentAware {
+
+    private static final String ENV_DOCUMENTS = "documents.";
+
+    private final Logger log = LoggerFactory.getLogger(DocumentStoreConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, ENV_DOCUMENTS);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "documents", name = "store", havingValue = "local", matchIfMissing = true)
+    public DocumentStore localDocumentStore() throws IOException {
+        String root = propertyResolver.getProperty("local.root", "target/documents");
+        log.debug("Storing documents in {}", root);
+        return new LocalDocumentStore(Paths.get(root));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "documents", name = "store", havingValue = "gridfs")
+    public DocumentStore gridFsDocumentStore(MongoDbFactory mongoDbFactory, MongoConverter mongoConverter) {
+        String bucket = propertyResolver.getProperty("gridfs.bucket", "documents");
+        log.debug("Storing documents in GridFS bucket {}", bucket);
+        return new GridFsDocumentStore(new GridFsTemplate(mongoDbFactory, mongoConverter, bucket));
+    }
+}
@@ -0,0 +1,48 @@
+package fr.minint.sief.config;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import fr.minint.sief.repository.MongoIndexManager;
+import fr.minint.sief.service.ApplicationCountService;
+import fr.minint.sief.service.RdvService;
+
+/**
+ * Initialize the data of the services once the root context is refreshed.
+ * <p>
+ * The indexes are created first so the following queries use them, then the application counts are rebuilt, and
+ * the appointment calendars are opened and indexed. The services do not listen themselves: implementing
+ * ApplicationListener would make them proxied by interface by the logging aspect of the dev profile.
+ * </p>
+ */
+@Component
+public class StartupInitializer implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final Logger log = LoggerFactory.getLogger(StartupInitializer.class);
+
+    @Inject
+    private MongoIndexManager mongoIndexManager;
+
+    @Inject
+    private ApplicationCountService applicationCountService;
+
+    @Inject
+    private RdvService rdvService;
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext().getParent() != null) {
+            return;
+        }
+        log.debug("Initializing indexes, application counts and appointment calendars");
+        mongoIndexManager.ensureIndexes();
+        applicationCountService.rebuild();
+        rdvService.openCalendars();
+        rdvService.rebuildIndex();
+    }
+}
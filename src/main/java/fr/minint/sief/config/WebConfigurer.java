@@ -4,6 +4,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.servlet.InstrumentedFilter;
 import com.codahale.metrics.servlets.MetricsServlet;
 import fr.minint.sief.web.filter.CachingHttpHeadersFilter;
+import fr.minint.sief.web.filter.StaticAssetManifest;
 import fr.minint.sief.web.filter.StaticResourcesProductionFilter;
 import fr.minint.sief.web.filter.gzip.GZipServletFilter;
 import org.slf4j.Logger;
@@ -47,8 +48,9 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
             initMetrics(servletContext, disps);
         }
         if (env.acceptsProfiles(Constants.SPRING_PROFILE_PRODUCTION)) {
-            initCachingHttpHeadersFilter(servletContext, disps);
-            initStaticResourcesProductionFilter(servletContext, disps);
+            StaticAssetManifest manifest = new StaticAssetManifest(servletContext);
+            initCachingHttpHeadersFilter(servletContext, disps, manifest);
+            initStaticResourcesProductionFilter(servletContext, disps, manifest);
             initGzipFilter(servletContext, disps);
         }
         log.info("Web application fully configured");
@@ -74,6 +76,8 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         log.debug("Registering GZip Filter");
         FilterRegistration.Dynamic compressingFilter = servletContext.addFilter("gzipFilter", new GZipServletFilter());
         Map<String, String> parameters = new HashMap<>();
+        parameters.put(GZipServletFilter.MIN_SIZE, env.getProperty("http.gzip.minSize", "1024"));
+        parameters.put(GZipServletFilter.LEVEL, env.getProperty("http.gzip.level", "6"));
         compressingFilter.setInitParameters(parameters);
         compressingFilter.addMappingForUrlPatterns(disps, true, "*.css");
         compressingFilter.addMappingForUrlPatterns(disps, true, "*.json");
@@ -90,12 +94,13 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
      * Initializes the static resources production Filter.
      */
     private void initStaticResourcesProductionFilter(ServletContext servletContext,
-                                                     EnumSet<DispatcherType> disps) {
+                                                     EnumSet<DispatcherType> disps,
+                                                     StaticAssetManifest manifest) {
 
         log.debug("Registering static resources production Filter");
         FilterRegistration.Dynamic staticResourcesProductionFilter =
                 servletContext.addFilter("staticResourcesProductionFilter",
-                        new StaticResourcesProductionFilter());
+                        new StaticResourcesProductionFilter(manifest));
 
         staticResourcesProductionFilter.addMappingForUrlPatterns(disps, true, "/");
         staticResourcesProductionFilter.addMappingForUrlPatterns(disps, true, "/index.html");
@@ -108,12 +113,15 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
      * Initializes the caching HTTP Headers Filter.
      */
     private void initCachingHttpHeadersFilter(ServletContext servletContext,
-                                              EnumSet<DispatcherType> disps) {
+                                              EnumSet<DispatcherType> disps,
+                                              StaticAssetManifest manifest) {
         log.debug("Registering Caching HTTP Headers Filter");
         FilterRegistration.Dynamic cachingHttpHeadersFilter =
                 servletContext.addFilter("cachingHttpHeadersFilter",
-                        new CachingHttpHeadersFilter(env));
+                        new CachingHttpHeadersFilter(env, manifest));
 
+        cachingHttpHeadersFilter.addMappingForUrlPatterns(disps, true, "/");
+        cachingHttpHeadersFilter.addMappingForUrlPatterns(disps, true, "/index.html");
         cachingHttpHeadersFilter.addMappingForUrlPatterns(disps, true, "/assets/*");
         cachingHttpHeadersFilter.addMappingForUrlPatterns(disps, true, "/scripts/*");
         cachingHttpHeadersFilter.setAsyncSupported(true);
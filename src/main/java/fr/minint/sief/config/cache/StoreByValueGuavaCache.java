@@ -0,0 +1,71 @@
+package fr.minint.sief.config.cache;
+
+import java.util.Optional;
+
+import org.springframework.cache.guava.GuavaCache;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import com.google.common.cache.Cache;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Guava cache of Mongo entities keeping them as documents, for mutable entities.
+ * <p>
+ * Each read maps a new instance from the document, as a read from the database would, so a caller modifying the
+ * entity it got, before saving it for instance, never modifies the cached one nor the one of another thread.
+ * Optional values, as returned by the repositories, are stored by the entity they hold.
+ * </p>
+ */
+public class StoreByValueGuavaCache extends GuavaCache {
+
+    private final MongoConverter mongoConverter;
+
+    public StoreByValueGuavaCache(String name, Cache<Object, Object> cache, boolean allowNullValues, MongoConverter mongoConverter) {
+        super(name, cache, allowNullValues);
+        this.mongoConverter = mongoConverter;
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        if (userValue instanceof Optional) {
+            return ((Optional<?>) userValue).map(value -> toDocument(value, true)).orElse(new Document(null, null, true));
+        }
+        return super.toStoreValue(userValue != null ? toDocument(userValue, false) : null);
+    }
+
+    @Override
+    protected Object fromStoreValue(Object storeValue) {
+        Object value = super.fromStoreValue(storeValue);
+        if (value == null) {
+            return null;
+        }
+        Document document = (Document) value;
+        Object entity = document.dbObject != null ? mongoConverter.read(document.type, document.dbObject) : null;
+        return document.optional ? Optional.ofNullable(entity) : entity;
+    }
+
+    private Document toDocument(Object entity, boolean optional) {
+        DBObject dbObject = new BasicDBObject();
+        mongoConverter.write(entity, dbObject);
+        return new Document(entity.getClass(), dbObject, optional);
+    }
+
+    /**
+     * An entity as it is stored in the database, read only
+     */
+    private static class Document {
+
+        private final Class<?> type;
+
+        private final DBObject dbObject;
+
+        private final boolean optional;
+
+        Document(Class<?> type, DBObject dbObject, boolean optional) {
+            this.type = type;
+            this.dbObject = dbObject;
+            this.optional = optional;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Cache specific code.
+ */
+package fr.minint.sief.config.cache;
@@ -0,0 +1,37 @@
+package fr.minint.sief.config.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.util.Assert;
+
+import fr.minint.sief.repository.MongoIndexManager;
+
+/**
+ * SpringBoot Actuator HealthIndicator check for the Database indexes.
+ * <p>
+ * Always up: the indexes are built in the background after startup, and a missing index slows queries down without
+ * breaking them, so it must not take the instance out of rotation. Missing and undeclared indexes are listed in the
+ * details.
+ * </p>
+ */
+public class DatabaseIndexHealthIndicator extends AbstractHealthIndicator {
+
+    private final Logger log = LoggerFactory.getLogger(DatabaseIndexHealthIndicator.class);
+
+    private MongoIndexManager mongoIndexManager;
+
+    public DatabaseIndexHealthIndicator(MongoIndexManager mongoIndexManager) {
+        Assert.notNull(mongoIndexManager, "mongoIndexManager must not be null");
+        this.mongoIndexManager = mongoIndexManager;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        log.debug("Initializing Database index health indicator");
+        builder.up()
+            .withDetail("missing", mongoIndexManager.getMissingIndexes())
+            .withDetail("undeclared", mongoIndexManager.getUndeclaredIndexes());
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import fr.minint.sief.repository.MongoIndexManager;
+
 import javax.inject.Inject;
 
 @Configuration
@@ -13,8 +15,16 @@ public class JHipsterHealthIndicatorConfiguration {
     @Inject
     private JavaMailSenderImpl javaMailSender;
 
+    @Inject
+    private MongoIndexManager mongoIndexManager;
+
     @Bean
     public HealthIndicator mailHealthIndicator() {
         return new JavaMailHealthIndicator(javaMailSender);
     }
+
+    @Bean
+    public HealthIndicator databaseIndexHealthIndicator() {
+        return new DatabaseIndexHealthIndicator(mongoIndexManager);
+    }
 }
@@ -10,6 +10,7 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.Email;
 import org.joda.time.DateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -31,6 +32,10 @@ public class Application implements Serializable {
     @Id
     private String id;
 
+    @Version
+    @Field("version")
+    private Long version;
+
     @Email
     @NotNull
     @Size(min = 5, max = 100)
@@ -38,6 +43,9 @@ public class Application implements Serializable {
     
     private String userId;
 
+    @Field("lang_key")
+    private String langKey;
+
     @NotNull
     @Field("nature")
     private ApplicationNature nature;
@@ -126,6 +134,14 @@ public class Application implements Serializable {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -142,6 +158,14 @@ public class Application implements Serializable {
 		this.userId = userId;
 	}
 
+	public String getLangKey() {
+		return langKey;
+	}
+
+	public void setLangKey(String langKey) {
+		this.langKey = langKey;
+	}
+
 	public ApplicationNature getNature() {
         return nature;
     }
@@ -311,8 +335,10 @@ public class Application implements Serializable {
     public String toString() {
         return "Application{" +
                 "id=" + id +
+                ", version='" + version + "'" +
                 ", email='" + email + "'" +
                 ", userId='" + userId + "'" +
+                ", langKey='" + langKey + "'" +
                 ", nature='" + nature + "'" +
                 ", type='" + type + "'" +
                 ", statut='" + statut + "'" +
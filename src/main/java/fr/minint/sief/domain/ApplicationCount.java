@@ -0,0 +1,162 @@
+package fr.minint.sief.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+
+/**
+ * A count of applications sharing the same status, nature and permit/civil state progress.
+ * <p>
+ * Counts are materialized in their own collection and kept up to date on every application transition.
+ * </p>
+ */
+@Document(collection = "APPLICATION_COUNT")
+public class ApplicationCount implements Serializable {
+
+    @Id
+    private String id;
+
+    @Field("statut")
+    private ApplicationStatus statut;
+
+    @Field("nature")
+    private ApplicationNature nature;
+
+    @Field("receipted")
+    private boolean receipted;
+
+    @Field("issued")
+    private boolean issued;
+
+    @Field("reconstructed")
+    private boolean reconstructed;
+
+    @Field("count")
+    private long count;
+
+    public ApplicationCount() {
+    }
+
+    public ApplicationCount(ApplicationStatus statut, ApplicationNature nature, boolean receipted, boolean issued,
+            boolean reconstructed, long count) {
+        this.id = key(statut, nature, receipted, issued, reconstructed);
+        this.statut = statut;
+        this.nature = nature;
+        this.receipted = receipted;
+        this.issued = issued;
+        this.reconstructed = reconstructed;
+        this.count = count;
+    }
+
+    /**
+     * Get the group of an application, counting for one.
+     *
+     * @param application The application
+     * @return The group of the application
+     */
+    public static ApplicationCount of(Application application) {
+        return new ApplicationCount(application.getStatut(), application.getNature(), application.getReceiptDate() != null,
+                application.getIssuingDate() != null, application.getReconstructionDate() != null, 1);
+    }
+
+    private static String key(ApplicationStatus statut, ApplicationNature nature, boolean receipted, boolean issued,
+            boolean reconstructed) {
+        return statut + "_" + nature + "_" + (receipted ? 1 : 0) + (issued ? 1 : 0) + (reconstructed ? 1 : 0);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ApplicationStatus getStatut() {
+        return statut;
+    }
+
+    public void setStatut(ApplicationStatus statut) {
+        this.statut = statut;
+    }
+
+    public ApplicationNature getNature() {
+        return nature;
+    }
+
+    public void setNature(ApplicationNature nature) {
+        this.nature = nature;
+    }
+
+    public boolean isReceipted() {
+        return receipted;
+    }
+
+    public void setReceipted(boolean receipted) {
+        this.receipted = receipted;
+    }
+
+    public boolean isIssued() {
+        return issued;
+    }
+
+    public void setIssued(boolean issued) {
+        this.issued = issued;
+    }
+
+    public boolean isReconstructed() {
+        return reconstructed;
+    }
+
+    public void setReconstructed(boolean reconstructed) {
+        this.reconstructed = reconstructed;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        ApplicationCount applicationCount = (ApplicationCount) o;
+
+        if ( ! Objects.equals(id, applicationCount.id)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ApplicationCount{" +
+                "id=" + id +
+                ", statut='" + statut + "'" +
+                ", nature='" + nature + "'" +
+                ", receipted='" + receipted + "'" +
+                ", issued='" + issued + "'" +
+                ", reconstructed='" + reconstructed + "'" +
+                ", count='" + count + "'" +
+                '}';
+    }
+}
@@ -35,6 +35,14 @@ public class Document implements Serializable {
     @Field("file_name")
     private String fileName;
 
+    /** SHA-256 of the content, hex encoded */
+    @Field("checksum")
+    private String checksum;
+
+    /** Size of the content in bytes */
+    @Field("size")
+    private long size;
+
     @JsonSerialize(using = CustomDateTimeSerializer.class)
     @JsonDeserialize(using = CustomDateTimeDeserializer.class)
     @Field("validation")
@@ -72,6 +80,22 @@ public class Document implements Serializable {
 		this.fileName = fileName;
 	}
 
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
 	public DateTime getValidation() {
 		return validation;
 	}
@@ -117,6 +141,8 @@ public class Document implements Serializable {
                 ", id='" + id + "'" +
                 ", name='" + name + "'" +
                 ", fileName='" + fileName + "'" +
+                ", checksum='" + checksum + "'" +
+                ", size='" + size + "'" +
                 ", validation='" + validation + "'" +
                 '}';
     }
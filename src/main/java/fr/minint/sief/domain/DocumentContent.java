@@ -0,0 +1,126 @@
+package fr.minint.sief.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * A content stored in the document store, shared by all the documents with the same checksum.
+ * <p>
+ * The last upload date protects a content uploaded again from the removal of the unreferenced contents
+ * until the document referencing it is saved. The removal date marks a content being removed: its file is deleted
+ * before the content is, and an upload of the same content waits until it is gone to store it again.
+ * </p>
+ */
+@Document(collection = "DOCUMENT_CONTENT")
+public class DocumentContent implements Serializable {
+
+    /**
+     * Time after which the removal of a content is considered failed, and its mark can be taken over.
+     */
+    public static final long REMOVAL_LEASE_MILLIS = 60000;
+
+    /** SHA-256 of the content, hex encoded */
+    @Id
+    private String checksum;
+
+    @Field("size")
+    private long size;
+
+    @Field("content_type")
+    private String contentType;
+
+    @Field("creation_date")
+    private DateTime creationDate;
+
+    @Field("last_upload_date")
+    private DateTime lastUploadDate;
+
+    @Field("removal_date")
+    private DateTime removalDate;
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public DateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(DateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public DateTime getLastUploadDate() {
+        return lastUploadDate;
+    }
+
+    public void setLastUploadDate(DateTime lastUploadDate) {
+        this.lastUploadDate = lastUploadDate;
+    }
+
+    public DateTime getRemovalDate() {
+        return removalDate;
+    }
+
+    public void setRemovalDate(DateTime removalDate) {
+        this.removalDate = removalDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        DocumentContent documentContent = (DocumentContent) o;
+
+        if ( ! Objects.equals(checksum, documentContent.checksum)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(checksum);
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentContent{" +
+                "checksum='" + checksum + "'" +
+                ", size='" + size + "'" +
+                ", contentType='" + contentType + "'" +
+                ", creationDate='" + creationDate + "'" +
+                ", lastUploadDate='" + lastUploadDate + "'" +
+                ", removalDate='" + removalDate + "'" +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+package fr.minint.sief.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * An e-mail waiting in the outbox to be sent by the mail dispatcher.
+ * <p>
+ * A mail is pending while it has a next attempt date, it is sent once it has a sent date,
+ * and it is abandoned when it has neither after too many failed attempts.
+ * </p>
+ */
+@Document(collection = "MAIL_OUTBOX")
+public class OutboxMail implements Serializable {
+
+    @Id
+    private String id;
+
+    @Field("to")
+    private String to;
+
+    @Field("subject")
+    private String subject;
+
+    @Field("content")
+    private String content;
+
+    @Field("multipart")
+    private boolean multipart;
+
+    @Field("html")
+    private boolean html;
+
+    @Field("creation_date")
+    private DateTime creationDate = DateTime.now();
+
+    @Field("next_attempt_date")
+    private DateTime nextAttemptDate = creationDate;
+
+    @Field("attempts")
+    private int attempts;
+
+    @Field("last_error")
+    private String lastError;
+
+    @Field("sent_date")
+    private DateTime sentDate;
+
+    public OutboxMail() {
+    }
+
+    public OutboxMail(String to, String subject, String content, boolean multipart, boolean html) {
+        this.to = to;
+        this.subject = subject;
+        this.content = content;
+        this.multipart = multipart;
+        this.html = html;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public boolean isMultipart() {
+        return multipart;
+    }
+
+    public void setMultipart(boolean multipart) {
+        this.multipart = multipart;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public void setHtml(boolean html) {
+        this.html = html;
+    }
+
+    public DateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(DateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public DateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(DateTime nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public DateTime getSentDate() {
+        return sentDate;
+    }
+
+    public void setSentDate(DateTime sentDate) {
+        this.sentDate = sentDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        OutboxMail outboxMail = (OutboxMail) o;
+
+        if ( ! Objects.equals(id, outboxMail.id)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxMail{" +
+                "id=" + id +
+                ", to='" + to + "'" +
+                ", subject='" + subject + "'" +
+                ", creationDate='" + creationDate + "'" +
+                ", nextAttemptDate='" + nextAttemptDate + "'" +
+                ", attempts='" + attempts + "'" +
+                ", lastError='" + lastError + "'" +
+                ", sentDate='" + sentDate + "'" +
+                '}';
+    }
+}
@@ -0,0 +1,116 @@
+package fr.minint.sief.domain;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * The appointment calendar of a site for one day.
+ * <p>
+ * The day is divided in slots of {@link #SLOT_MINUTES} minutes. The capacity of a slot is the number of counters
+ * open during it, and the free places of a slot are decremented atomically by each reservation, so a slot can never
+ * be booked more than its capacity.
+ * </p>
+ */
+@Document(collection = "RDV_CALENDAR")
+public class RdvCalendar implements Serializable {
+
+    public static final int SLOT_MINUTES = 15;
+
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    /** site/yyyy-MM-dd */
+    @Id
+    private String id;
+
+    @Field("site")
+    private String site;
+
+    @Field("day")
+    private DateTime day;
+
+    /** Number of counters open, by slot */
+    @Field("capacity")
+    private List<Integer> capacity;
+
+    /** Number of places left, by slot */
+    @Field("free")
+    private List<Integer> free;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public void setSite(String site) {
+        this.site = site;
+    }
+
+    public DateTime getDay() {
+        return day;
+    }
+
+    public void setDay(DateTime day) {
+        this.day = day;
+    }
+
+    public List<Integer> getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(List<Integer> capacity) {
+        this.capacity = capacity;
+    }
+
+    public List<Integer> getFree() {
+        return free;
+    }
+
+    public void setFree(List<Integer> free) {
+        this.free = free;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        RdvCalendar rdvCalendar = (RdvCalendar) o;
+
+        if ( ! Objects.equals(id, rdvCalendar.id)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "RdvCalendar{" +
+                "id='" + id + "'" +
+                ", site='" + site + "'" +
+                ", day='" + day + "'" +
+                ", capacity='" + capacity + "'" +
+                ", free='" + free + "'" +
+                '}';
+    }
+}
@@ -10,6 +10,7 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.Email;
 import org.joda.time.DateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -30,6 +31,11 @@ public class User extends AbstractAuditingEntity implements Serializable {
     @Id
     private String id;
 
+    @Version
+    @JsonIgnore
+    @Field("version")
+    private Long version;
+
     @Email
     @NotNull
     @Size(min = 5, max = 100)
@@ -89,6 +95,14 @@ public class User extends AbstractAuditingEntity implements Serializable {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getEmail() {
         return email;
     }
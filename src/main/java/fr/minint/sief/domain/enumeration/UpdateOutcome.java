@@ -0,0 +1,10 @@
+package fr.minint.sief.domain.enumeration;
+
+/**
+ * The outcome of the update of one application in a bulk update enumeration.
+ */
+public enum UpdateOutcome {
+    updated,
+    unchanged,
+    not_found
+}
@@ -12,6 +12,10 @@ import com.fasterxml.jackson.databind.JsonDeserializer;
 
 /**
  * Custom Jackson deserializer for transforming a JSON object to a Joda DateTime object.
+ * <p>
+ * UTC dates, as written by {@link CustomDateTimeSerializer} or by a browser, are read from the characters of the
+ * parser without creating a String. The other ISO 8601 dates go through the Joda parser.
+ * </p>
  */
 public class CustomDateTimeDeserializer extends JsonDeserializer<DateTime> {
 
@@ -20,6 +24,10 @@ public class CustomDateTimeDeserializer extends JsonDeserializer<DateTime> {
             throws IOException {
         JsonToken t = jp.getCurrentToken();
         if (t == JsonToken.VALUE_STRING) {
+            long millis = ISO8601UtcDateTime.parse(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+            if (millis != ISO8601UtcDateTime.INVALID) {
+                return new DateTime(millis);
+            }
             String str = jp.getText().trim();
             return ISODateTimeFormat.dateTimeParser().parseDateTime(str);
         }
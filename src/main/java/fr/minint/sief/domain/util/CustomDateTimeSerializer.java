@@ -13,17 +13,28 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 
 /**
  * Custom Jackson serializer for transforming a Joda DateTime object to JSON.
+ * <p>
+ * The date is written in UTC straight from its milliseconds, through a buffer of the serializing thread, without
+ * converting it to another DateTime nor formatting it to a String.
+ * </p>
  */
 public class CustomDateTimeSerializer extends JsonSerializer<DateTime> {
 
     private static DateTimeFormatter formatter = DateTimeFormat
             .forPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
+    private static final ThreadLocal<char[]> buffer = ThreadLocal.withInitial(() -> new char[ISO8601UtcDateTime.LENGTH]);
+
     @Override
     public void serialize(DateTime value, JsonGenerator generator,
                           SerializerProvider serializerProvider)
             throws IOException {
-        generator.writeString(formatter.print(value.toDateTime(DateTimeZone.UTC)));
+        char[] chars = buffer.get();
+        if (ISO8601UtcDateTime.format(value.getMillis(), chars)) {
+            generator.writeString(chars, 0, ISO8601UtcDateTime.LENGTH);
+        } else {
+            generator.writeString(formatter.print(value.toDateTime(DateTimeZone.UTC)));
+        }
     }
 
 }
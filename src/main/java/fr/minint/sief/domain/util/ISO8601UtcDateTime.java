@@ -0,0 +1,144 @@
+package fr.minint.sief.domain.util;
+
+/**
+ * Conversion between epoch milliseconds and ISO 8601 UTC date times ("yyyy-MM-dd'T'HH:mm:ss'Z'"), working on
+ * character arrays so that no intermediate DateTime or String is allocated.
+ * <p>
+ * The civil date computations are the ones of the proleptic Gregorian calendar, as used by the ISO chronology.
+ * </p>
+ */
+final class ISO8601UtcDateTime {
+
+    /** Length of yyyy-MM-ddTHH:mm:ssZ */
+    static final int LENGTH = 20;
+
+    /** Length of yyyy-MM-ddTHH:mm:ss.SSSZ */
+    private static final int LENGTH_WITH_MILLIS = 24;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    /** Days from 0000-03-01 to 1970-01-01 */
+    private static final int EPOCH_DAYS = 719468;
+
+    private static final int DAYS_PER_ERA = 146097;
+
+    /** Returned by {@link #parse} when the text is not a UTC date time it handles */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private ISO8601UtcDateTime() {
+    }
+
+    /**
+     * Format an instant, truncated to the second
+     *
+     * @param millis The instant, in milliseconds from the epoch
+     * @param buffer The buffer to format into, of at least {@link #LENGTH} characters
+     * @return false if the year of the instant is not between 0 and 9999, nothing being formatted
+     */
+    static boolean format(long millis, char[] buffer) {
+        long seconds = Math.floorDiv(millis, 1000L);
+        long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        long z = days + EPOCH_DAYS;
+        long era = Math.floorDiv(z, DAYS_PER_ERA);
+        int dayOfEra = (int) (z - era * DAYS_PER_ERA);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return false;
+        }
+
+        write4(buffer, 0, (int) year);
+        buffer[4] = '-';
+        write2(buffer, 5, month);
+        buffer[7] = '-';
+        write2(buffer, 8, day);
+        buffer[10] = 'T';
+        write2(buffer, 11, secondOfDay / 3600);
+        buffer[13] = ':';
+        write2(buffer, 14, secondOfDay / 60 % 60);
+        buffer[16] = ':';
+        write2(buffer, 17, secondOfDay % 60);
+        buffer[19] = 'Z';
+        return true;
+    }
+
+    /**
+     * Parse a UTC date time, with or without milliseconds
+     *
+     * @param text The characters to parse
+     * @param offset The offset of the first character
+     * @param length The number of characters
+     * @return The instant, in milliseconds from the epoch, or {@link #INVALID} if the text is not a UTC date time
+     * with one of these two exact formats
+     */
+    static long parse(char[] text, int offset, int length) {
+        if ((length != LENGTH && length != LENGTH_WITH_MILLIS) || text[offset + length - 1] != 'Z'
+                || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T'
+                || text[offset + 13] != ':' || text[offset + 16] != ':') {
+            return INVALID;
+        }
+        int year = read(text, offset, 4);
+        int month = read(text, offset + 5, 2);
+        int day = read(text, offset + 8, 2);
+        int hour = read(text, offset + 11, 2);
+        int minute = read(text, offset + 14, 2);
+        int second = read(text, offset + 17, 2);
+        int millis = 0;
+        if (length == LENGTH_WITH_MILLIS) {
+            if (text[offset + 19] != '.') {
+                return INVALID;
+            }
+            millis = read(text, offset + 20, 3);
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return INVALID;
+        }
+
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = (long) era * DAYS_PER_ERA + dayOfEra - EPOCH_DAYS;
+        return ((days * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second) * 1000L) + millis;
+    }
+
+    private static int getDaysInMonth(int year, int month) {
+        if (month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return The value of the digits, or -1 if a character is not a digit
+     */
+    private static int read(char[] text, int offset, int digits) {
+        int value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void write2(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void write4(char[] buffer, int offset, int value) {
+        write2(buffer, offset, value / 100);
+        write2(buffer, offset + 2, value % 100);
+    }
+}
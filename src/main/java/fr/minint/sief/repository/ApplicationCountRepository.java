@@ -0,0 +1,12 @@
+package fr.minint.sief.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import fr.minint.sief.domain.ApplicationCount;
+
+/**
+ * Spring Data MongoDB repository for the ApplicationCount entity.
+ */
+public interface ApplicationCountRepository extends MongoRepository<ApplicationCount, String> {
+
+}
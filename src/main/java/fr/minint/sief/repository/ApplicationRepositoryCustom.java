@@ -0,0 +1,78 @@
+package fr.minint.sief.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.ApplicationCount;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+
+/**
+ * Custom queries on the Application collection that can't be derived by Spring Data.
+ */
+public interface ApplicationRepositoryCustom {
+
+	/**
+	 * Count all applications in a single aggregation, grouped by status, nature and
+	 * receipt/issuing/reconstruction progress.
+	 * 
+	 * @return One count per non empty group
+	 */
+	List<ApplicationCount> countGroupByStatutAndNature();
+
+	/**
+	 * Set the permit receipt date of the validated applications that don't have one yet, in a single unordered bulk write.
+	 * 
+	 * @param ids The ids of the applications
+	 * @param receiptDate The permit receipt date
+	 * @return The ids of the applications that have been updated
+	 */
+	List<String> updateReceiptDate(Collection<String> ids, DateTime receiptDate);
+
+	/**
+	 * Set the language of the mails of all the applications of a user.
+	 * 
+	 * @param email The email of the user
+	 * @param langKey The language of the user
+	 */
+	void updateLangKey(String email, String langKey);
+
+	/*
+	 * The summary pages below only load the fields of the application summary (see ApplicationSummaryDTO),
+	 * the other fields of the returned applications are left to their default value.
+	 */
+
+	/**
+	 * Get a summary page of applications in the specified status, optionally owned by the specified user, ordered by creation date.
+	 * 
+	 * @param status The status of the applications
+	 * @param email The email of the owner, all owners if null
+	 * @param after The last application of the previous page, first page if null
+	 * @param limit The maximum number of applications to return
+	 * @return The summary page of applications
+	 */
+	List<Application> findSummaryPageByStatutInOrderByCreationDateAsc(List<ApplicationStatus> status, String email, Keyset after, int limit);
+
+	/**
+	 * Get a summary page of applications without permit receipt, optionally with the specified foreigner number, last decided first.
+	 */
+	List<Application> findSummaryPageByStatutAndNatureAndReceiptDateIsNullOrderByDecisionDateDesc(ApplicationStatus status, ApplicationNature nature, String foreignerNumber, Keyset after, int limit);
+
+	/**
+	 * Get a summary page of applications with permit receipted but not issued, optionally with the specified foreigner number, ordered by decision date.
+	 */
+	List<Application> findSummaryPageByStatutAndNatureAndReceiptDateIsNotNullAndIssuingDateIsNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, String foreignerNumber, Keyset after, int limit);
+
+	/**
+	 * Get a summary page of decided applications, ordered by decision date.
+	 */
+	List<Application> findSummaryPageByStatutAndNatureAndDecisionDateIsNotNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, Keyset after, int limit);
+
+	/**
+	 * Get a summary page of applications whose civil state is not reconstructed, ordered by decision date.
+	 */
+	List<Application> findSummaryPageByStatutAndNatureAndReconstructionDateIsNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, Keyset after, int limit);
+}
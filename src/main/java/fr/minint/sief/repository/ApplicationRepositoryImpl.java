@@ -0,0 +1,197 @@
+package fr.minint.sief.repository;
+
+import static java.util.Arrays.asList;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.bson.types.ObjectId;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.ApplicationCount;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+import fr.minint.sief.domain.enumeration.PersonType;
+
+/**
+ * Implementation of the custom queries on the Application collection.
+ */
+public class ApplicationRepositoryImpl implements ApplicationRepositoryCustom {
+
+	/**
+	 * Fields of the application summary, as property paths except for the documents of the family
+	 * that are reached through the keys of the family map.
+	 */
+	private static final List<String> SUMMARY_FIELDS = new ArrayList<>(asList("id", "userId", "nature", "type", "statut",
+			"creationDate", "interviewDate", "biometricsDate", "decisionDate", "receiptDate", "issuingDate",
+			"identity.lastName", "identity.firstName", "identity.nationality", "identity.foreignerNumber",
+			"identity.validateOn", "identity.familyValidateOn", "identity.documents.validation"));
+	static {
+		for (PersonType personType : PersonType.values()) {
+			SUMMARY_FIELDS.add("identity.family." + personType + ".identity.documents.validation");
+		}
+	}
+
+	@Inject
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public List<ApplicationCount> countGroupByStatutAndNature() {
+		// Legacy documents may lack a status or a nature, they belong to no bucket of the dashboard
+		DBObject match = new BasicDBObject("$match", new BasicDBObject()
+				.append("statut", new BasicDBObject("$ne", null))
+				.append("nature", new BasicDBObject("$ne", null)));
+		DBObject group = new BasicDBObject("$group", new BasicDBObject()
+				.append("_id", new BasicDBObject()
+						.append("statut", "$statut")
+						.append("nature", "$nature")
+						.append("receipted", isNotNull("$receipt_date"))
+						.append("issued", isNotNull("$issuing_date"))
+						.append("reconstructed", isNotNull("$reconstruction_date")))
+				.append("count", new BasicDBObject("$sum", 1)));
+
+		List<ApplicationCount> counts = new ArrayList<>();
+		try (Cursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Application.class))
+				.aggregate(asList(match, group), AggregationOptions.builder().outputMode(AggregationOptions.OutputMode.CURSOR).build())) {
+			while (cursor.hasNext()) {
+				DBObject result = cursor.next();
+				DBObject id = (DBObject) result.get("_id");
+				counts.add(new ApplicationCount(
+						ApplicationStatus.valueOf((String) id.get("statut")),
+						ApplicationNature.valueOf((String) id.get("nature")),
+						(Boolean) id.get("receipted"),
+						(Boolean) id.get("issued"),
+						(Boolean) id.get("reconstructed"),
+						((Number) result.get("count")).longValue()));
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public List<String> updateReceiptDate(Collection<String> ids, DateTime receiptDate) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Application.class));
+		BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+		DBObject set = new BasicDBObject("$set", new BasicDBObject("receipt_date", receiptDate.toDate()))
+				.append("$inc", new BasicDBObject("version", 1L));
+		ids.forEach(id -> bulk.find(new BasicDBObject("_id", toObjectId(id))
+					.append("statut", ApplicationStatus.validated.name())
+					.append("receipt_date", null))
+				.updateOne(set));
+		BulkWriteResult result = bulk.execute();
+		if (result.isModifiedCountAvailable() ? result.getModifiedCount() == ids.size() : result.getMatchedCount() == ids.size()) {
+			return new ArrayList<>(ids);
+		}
+		// Some applications were not updated, only those that now have this exact receipt date were
+		Query updated = new Query(where("id").in(ids).and("receiptDate").is(receiptDate));
+		updated.fields().include("id");
+		return mongoTemplate.find(updated, Application.class).stream()
+				.map(Application::getId)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void updateLangKey(String email, String langKey) {
+		mongoTemplate.updateMulti(new Query(where("email").is(email)),
+				new Update().set("langKey", langKey).inc("version", 1), Application.class);
+	}
+
+	private Object toObjectId(String id) {
+		return ObjectId.isValid(id) ? new ObjectId(id) : id;
+	}
+
+	/**
+	 * Aggregation expression true when the field exists and is not null.
+	 */
+	private DBObject isNotNull(String field) {
+		return new BasicDBObject("$ne", asList(new BasicDBObject("$ifNull", asList(field, null)), null));
+	}
+
+	@Override
+	public List<Application> findSummaryPageByStatutInOrderByCreationDateAsc(List<ApplicationStatus> status, String email, Keyset after, int limit) {
+		Criteria criteria = where("statut").in(status);
+		if (email != null) {
+			criteria.and("email").is(email);
+		}
+		return findPage(criteria, "creationDate", Direction.ASC, after, limit);
+	}
+
+	@Override
+	public List<Application> findSummaryPageByStatutAndNatureAndReceiptDateIsNullOrderByDecisionDateDesc(ApplicationStatus status, ApplicationNature nature, String foreignerNumber, Keyset after, int limit) {
+		Criteria criteria = where("statut").is(status).and("nature").is(nature).and("receiptDate").is(null);
+		if (foreignerNumber != null) {
+			criteria.and("identity.foreignerNumber").is(foreignerNumber);
+		}
+		return findPage(criteria, "decisionDate", Direction.DESC, after, limit);
+	}
+
+	@Override
+	public List<Application> findSummaryPageByStatutAndNatureAndReceiptDateIsNotNullAndIssuingDateIsNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, String foreignerNumber, Keyset after, int limit) {
+		Criteria criteria = where("statut").is(status).and("nature").is(nature).and("receiptDate").ne(null).and("issuingDate").is(null);
+		if (foreignerNumber != null) {
+			criteria.and("identity.foreignerNumber").is(foreignerNumber);
+		}
+		return findPage(criteria, "decisionDate", Direction.ASC, after, limit);
+	}
+
+	@Override
+	public List<Application> findSummaryPageByStatutAndNatureAndDecisionDateIsNotNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, Keyset after, int limit) {
+		return findPage(where("statut").is(status).and("nature").is(nature).and("decisionDate").ne(null),
+				"decisionDate", Direction.ASC, after, limit);
+	}
+
+	@Override
+	public List<Application> findSummaryPageByStatutAndNatureAndReconstructionDateIsNullOrderByDecisionDateAsc(ApplicationStatus status, ApplicationNature nature, Keyset after, int limit) {
+		return findPage(where("statut").is(status).and("nature").is(nature).and("reconstructionDate").is(null),
+				"decisionDate", Direction.ASC, after, limit);
+	}
+
+	/**
+	 * Get the summary of the applications matching the criteria, sorted on the date field then on the id, that come after the keyset.
+	 * <p>
+	 * Mongo sorts a missing date before any other in ascending order and after any other in descending order, while
+	 * comparing a date skips the documents without one, so these are matched on their own.
+	 * </p>
+	 */
+	private List<Application> findPage(Criteria criteria, String dateField, Direction direction, Keyset after, int limit) {
+		Query query = new Query(criteria);
+		if (after != null) {
+			boolean ascending = direction == Direction.ASC;
+			Criteria sameDate = new Criteria().andOperator(where(dateField).is(after.getDate()),
+					ascending ? where("id").gt(after.getId()) : where("id").lt(after.getId()));
+			if (after.getDate() == null) {
+				query.addCriteria(ascending ? new Criteria().orOperator(where(dateField).ne(null), sameDate) : sameDate);
+			} else if (ascending) {
+				query.addCriteria(new Criteria().orOperator(where(dateField).gt(after.getDate()), sameDate));
+			} else {
+				query.addCriteria(new Criteria().orOperator(where(dateField).lt(after.getDate()), sameDate, where(dateField).is(null)));
+			}
+		}
+		SUMMARY_FIELDS.forEach(query.fields()::include);
+		query.with(new Sort(direction, dateField, "id")).limit(limit);
+		return mongoTemplate.find(query, Application.class);
+	}
+}
@@ -1,10 +1,16 @@
 package fr.minint.sief.repository;
 
+import fr.minint.sief.config.CacheConfiguration;
 import fr.minint.sief.domain.Authority;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 /**
  * Spring Data MongoDB repository for the Authority entity.
  */
 public interface AuthorityRepository extends MongoRepository<Authority, String> {
+
+    @Override
+    @Cacheable(value = CacheConfiguration.AUTHORITIES, unless = "#result == null")
+    Authority findOne(String name);
 }
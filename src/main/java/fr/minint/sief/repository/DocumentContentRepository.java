@@ -0,0 +1,12 @@
+package fr.minint.sief.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import fr.minint.sief.domain.DocumentContent;
+
+/**
+ * Spring Data MongoDB repository for the DocumentContent entity.
+ */
+public interface DocumentContentRepository extends MongoRepository<DocumentContent, String> {
+
+}
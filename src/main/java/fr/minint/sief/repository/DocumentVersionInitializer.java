@@ -0,0 +1,51 @@
+package fr.minint.sief.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.WriteResult;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.User;
+
+/**
+ * Initialize the version of the versioned documents written before they were versioned.
+ * <p>
+ * Spring Data inserts a document whose version is null, so saving a document read without a version would fail
+ * with a duplicate key instead of updating it.
+ * </p>
+ */
+@Component
+public class DocumentVersionInitializer implements ApplicationListener<ContextRefreshedEvent> {
+
+	private final Logger log = LoggerFactory.getLogger(DocumentVersionInitializer.class);
+
+	private static final List<Class<?>> VERSIONED = Arrays.asList(Application.class, User.class);
+
+	@Inject
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		VERSIONED.forEach(entityClass -> {
+			WriteResult result = mongoTemplate.updateMulti(query(where("version").exists(false)),
+					new Update().set("version", 0L), entityClass);
+			if (result.getN() > 0) {
+				log.info("Initialized the version of {} {} documents", result.getN(), entityClass.getSimpleName());
+			}
+		});
+	}
+}
@@ -0,0 +1,39 @@
+package fr.minint.sief.repository;
+
+import java.io.Serializable;
+
+import org.joda.time.DateTime;
+
+/**
+ * Position of the last element of a page, after which a keyset paginated query resumes.
+ * <p>
+ * Pages are sorted on a date then on the id, so the position is the (date, id) pair of the last element read.
+ * </p>
+ */
+public class Keyset implements Serializable {
+
+    private final DateTime date;
+
+    private final String id;
+
+    public Keyset(DateTime date, String id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public DateTime getDate() {
+        return date;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "Keyset{" +
+                "date='" + date + "'" +
+                ", id='" + id + "'" +
+                '}';
+    }
+}
@@ -0,0 +1,160 @@
+package fr.minint.sief.repository;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.DBObject;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.DocumentContent;
+import fr.minint.sief.domain.OutboxMail;
+import fr.minint.sief.domain.RdvCalendar;
+import fr.minint.sief.domain.User;
+
+/**
+ * Declare the indexes matching the query shapes of the repositories and create them on startup.
+ * <p>
+ * Index creation is idempotent: an index that already exists with the same keys is left untouched.
+ * </p>
+ */
+@Component
+public class MongoIndexManager {
+
+	private final Logger log = LoggerFactory.getLogger(MongoIndexManager.class);
+
+	private static final String ID_INDEX = "_id_";
+
+	private final Map<Class<?>, List<Index>> indexes = new LinkedHashMap<>();
+
+	@Inject
+	private MongoTemplate mongoTemplate;
+
+	public MongoIndexManager() {
+		declare(Application.class,
+				// streamByEmailOrderByCreationDateDesc, countByEmailAndStatutNot
+				new Index().on("email", ASC).on("creation_date", DESC),
+				// streamByStatutInAndEmailOrderByCreationDateAsc, findSummaryPageByStatutIn with an email
+				new Index().on("email", ASC).on("statut", ASC).on("creation_date", ASC),
+				// findFirstByStatutInAndEmailOrderByDecisionDateDesc
+				new Index().on("email", ASC).on("statut", ASC).on("decision_date", DESC),
+				// findSummaryPageByStatutInOrderByCreationDateAsc
+				new Index().on("statut", ASC).on("creation_date", ASC).on("_id", ASC),
+				// findSummaryPageByStatutAndNature*, in both sort directions
+				new Index().on("statut", ASC).on("nature", ASC).on("decision_date", ASC).on("_id", ASC),
+				// findSummaryPageByStatutAndNature* with a foreigner number, only known once admissible
+				new Index().on("identity.foreigner_number", ASC).sparse());
+		declare(User.class,
+				// findOneByEmail
+				new Index().on("email", ASC),
+				// findOneByActivationKey
+				new Index().on("activation_key", ASC).sparse(),
+				// findOneByResetKey
+				new Index().on("reset_key", ASC).sparse(),
+				// findAllByActivatedIsFalseAndCreatedDateBefore
+				new Index().on("activated", ASC).on("created_date", ASC));
+		declare(OutboxMail.class,
+				// MailDispatcher claims, only pending mails have a next attempt date
+				new Index().on("next_attempt_date", ASC).sparse(),
+				// sent mails are kept a week
+				new Index().on("sent_date", ASC).expire(7, TimeUnit.DAYS));
+		declare(DocumentContent.class,
+				// DocumentContentService candidates for removal
+				new Index().on("last_upload_date", ASC));
+		declare(RdvCalendar.class,
+				// RdvService index rebuild
+				new Index().on("day", ASC));
+	}
+
+	private void declare(Class<?> entityClass, Index... entityIndexes) {
+		Arrays.stream(entityIndexes).forEach(Index::background);
+		indexes.put(entityClass, Arrays.asList(entityIndexes));
+	}
+
+	/**
+	 * Create the declared indexes that don't exist yet
+	 */
+	public void ensureIndexes() {
+		indexes.forEach((entityClass, entityIndexes) -> entityIndexes.forEach(index -> {
+			try {
+				mongoTemplate.indexOps(entityClass).ensureIndex(index);
+			} catch (DataAccessException e) {
+				log.warn("Could not create index {} on {}: {}", index.getIndexKeys(), entityClass.getSimpleName(), e.getMessage());
+			}
+		}));
+		log.debug("Ensured indexes {}", indexes);
+	}
+
+	/**
+	 * Get the declared indexes that don't exist in the database
+	 *
+	 * @return The keys of the missing indexes, by collection
+	 */
+	public Map<String, List<String>> getMissingIndexes() {
+		Map<String, List<String>> missing = new LinkedHashMap<>();
+		indexes.forEach((entityClass, entityIndexes) -> {
+			List<List<IndexField>> existing = mongoTemplate.indexOps(entityClass).getIndexInfo().stream()
+					.map(IndexInfo::getIndexFields)
+					.collect(Collectors.toList());
+			List<String> collectionMissing = entityIndexes.stream()
+					.map(MongoIndexManager::getIndexFields)
+					.filter(fields -> !existing.contains(fields))
+					.map(Object::toString)
+					.collect(Collectors.toList());
+			if (!collectionMissing.isEmpty()) {
+				missing.put(mongoTemplate.getCollectionName(entityClass), collectionMissing);
+			}
+		});
+		return missing;
+	}
+
+	/**
+	 * Get the indexes of the database that are not declared, so that no known query uses them
+	 *
+	 * @return The names of the undeclared indexes, by collection
+	 */
+	public Map<String, List<String>> getUndeclaredIndexes() {
+		Map<String, List<String>> undeclared = new LinkedHashMap<>();
+		indexes.forEach((entityClass, entityIndexes) -> {
+			List<List<IndexField>> declared = entityIndexes.stream()
+					.map(MongoIndexManager::getIndexFields)
+					.collect(Collectors.toList());
+			List<String> collectionUndeclared = mongoTemplate.indexOps(entityClass).getIndexInfo().stream()
+					.filter(info -> !ID_INDEX.equals(info.getName()))
+					.filter(info -> !declared.contains(info.getIndexFields()))
+					.map(IndexInfo::getName)
+					.collect(Collectors.toList());
+			if (!collectionUndeclared.isEmpty()) {
+				undeclared.put(mongoTemplate.getCollectionName(entityClass), collectionUndeclared);
+			}
+		});
+		return undeclared;
+	}
+
+	private static List<IndexField> getIndexFields(Index index) {
+		DBObject keys = index.getIndexKeys();
+		List<IndexField> fields = new ArrayList<>();
+		for (String key : keys.keySet()) {
+			fields.add(IndexField.create(key, ((Number) keys.get(key)).intValue() > 0 ? ASC : DESC));
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,12 @@
+package fr.minint.sief.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import fr.minint.sief.domain.OutboxMail;
+
+/**
+ * Spring Data MongoDB repository for the OutboxMail entity.
+ */
+public interface OutboxMailRepository extends MongoRepository<OutboxMail, String> {
+
+}
@@ -1,15 +1,27 @@
 package fr.minint.sief.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.joda.time.DateTime;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import fr.minint.sief.config.CacheConfiguration;
 import fr.minint.sief.domain.User;
 
 /**
  * Spring Data MongoDB repository for the User entity.
+ * <p>
+ * Users by email are cached, the cached user is evicted before and after it is saved, so that neither a failed save
+ * nor a concurrent read can leave a stale user in the cache. The cache stores the users by value: each call gets its
+ * own copy, which it can modify and save without changing the user of the other threads.
+ * </p>
  */
 public interface UserRepository extends MongoRepository<User, String> {
 
@@ -19,9 +31,26 @@ public interface UserRepository extends MongoRepository<User, String> {
 
 	Optional<User> findOneByResetKey(String resetKey);
 
+	@Cacheable(value = CacheConfiguration.USERS_BY_EMAIL, unless = "#result == null || !#result.isPresent()")
 	Optional<User> findOneByEmail(String email);
 
+	@Query("{}")
+	Stream<User> streamAll();
+
+	/**
+	 * Get the email and the language of the users with the specified emails, their other fields are left to their default value.
+	 */
+	@Query(value = "{ 'email' : { '$in' : ?0 } }", fields = "{ 'email' : 1, 'lang_key' : 1 }")
+	List<User> findLangKeyByEmailIn(Collection<String> emails);
+
+	@Override
+	@Caching(evict = {
+			@CacheEvict(value = CacheConfiguration.USERS_BY_EMAIL, key = "#p0.email", beforeInvocation = true),
+			@CacheEvict(value = CacheConfiguration.USERS_BY_EMAIL, key = "#p0.email") })
+	<S extends User> S save(S user);
+
 	@Override
+	@CacheEvict(value = CacheConfiguration.USERS_BY_EMAIL, key = "#p0.email")
 	void delete(User t);
 
 }
@@ -0,0 +1,62 @@
+package fr.minint.sief.security;
+
+import java.util.Optional;
+
+import javax.inject.Inject;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import fr.minint.sief.domain.User;
+import fr.minint.sief.repository.UserRepository;
+
+/**
+ * Holder of the user logged in the current request.
+ * <p>
+ * The user is loaded once per request and kept in the request attributes, so the services it goes through share
+ * it instead of loading it again. Outside of a request, in a scheduled task for instance, it is loaded on every call.
+ * </p>
+ */
+@Component
+public class CurrentUserHolder {
+
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUserHolder.class.getName() + ".USER";
+
+    @Inject
+    private UserRepository userRepository;
+
+    /**
+     * Get the current user.
+     *
+     * @return the current user, or empty if no user is logged in
+     */
+    public Optional<User> getUser() {
+        String login = SecurityUtils.getCurrentLogin();
+        if (login == null) {
+            return Optional.empty();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return userRepository.findOneByEmail(login);
+        }
+        Object user = attributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user instanceof User && login.equals(((User) user).getEmail())) {
+            return Optional.of((User) user);
+        }
+        Optional<User> currentUser = userRepository.findOneByEmail(login);
+        currentUser.ifPresent(u -> attributes.setAttribute(CURRENT_USER_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST));
+        return currentUser;
+    }
+
+    /**
+     * Get the user of an email, without loading it again when it is the current user.
+     *
+     * @param email The email of the user
+     * @return the user, or empty if there is no user with this email
+     */
+    public Optional<User> getUser(String email) {
+        Optional<User> currentUser = getUser().filter(user -> user.getEmail().equals(email));
+        return currentUser.isPresent() ? currentUser : userRepository.findOneByEmail(email);
+    }
+}
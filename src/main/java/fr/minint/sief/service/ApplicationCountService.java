@@ -0,0 +1,146 @@
+package fr.minint.sief.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.ApplicationCount;
+import fr.minint.sief.repository.ApplicationCountRepository;
+import fr.minint.sief.repository.ApplicationRepository;
+
+/**
+ * Service class for managing the materialized application counts.
+ * <p>
+ * Counts are rebuilt from a full aggregation of the applications on startup and every night, and incremented on every
+ * application transition in between so reading them does not depend on the number of applications.
+ * </p>
+ */
+@Service
+public class ApplicationCountService {
+
+	private final Logger log = LoggerFactory.getLogger(ApplicationCountService.class);
+
+	@Inject
+	private MongoTemplate mongoTemplate;
+
+	@Inject
+	private ApplicationRepository applicationRepository;
+
+	@Inject
+	private ApplicationCountRepository applicationCountRepository;
+
+	/**
+	 * Rebuild all counts from the applications.
+	 * <p>
+	 * The counts are aggregated into a new collection which then replaces the current one, so readers never see
+	 * missing counts, and instances rebuilding at the same time all end up with the same counts.
+	 * </p>
+	 * <p>
+	 * An increment is a write of its own after the application is saved, so counts drift when it fails or the
+	 * instance stops in between, and the increments made between the aggregation and the replacement are lost. Both
+	 * last until the next rebuild, which is scheduled to run every day, at 02:30 (am), besides the one on startup.
+	 * </p>
+	 */
+	@Scheduled(cron = "${counts.cron:0 30 2 * * ?}")
+	public void rebuild() {
+		List<ApplicationCount> counts = applicationRepository.countGroupByStatutAndNature();
+		String collectionName = mongoTemplate.getCollectionName(ApplicationCount.class);
+		String rebuiltName = collectionName + "_" + UUID.randomUUID().toString().replace("-", "");
+		mongoTemplate.createCollection(rebuiltName);
+		mongoTemplate.insert(counts, rebuiltName);
+		mongoTemplate.getCollection(rebuiltName).rename(collectionName, true);
+		log.debug("Rebuilt application counts: {}", counts);
+	}
+
+	/**
+	 * Get all non empty counts, except the ones of legacy applications without status or nature
+	 * @return list of counts
+	 */
+	public List<ApplicationCount> getCounts() {
+		return applicationCountRepository.findAll().stream()
+				.filter(count -> count.getCount() > 0 && count.getStatut() != null && count.getNature() != null)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Count a new application
+	 *
+	 * @param application The created application
+	 */
+	public void created(Application application) {
+		increment(ApplicationCount.of(application), 1);
+	}
+
+	/**
+	 * Uncount a deleted application
+	 *
+	 * @param application The deleted application
+	 */
+	public void deleted(Application application) {
+		increment(ApplicationCount.of(application), -1);
+	}
+
+	/**
+	 * Move an application from its previous group to its current one
+	 *
+	 * @param previous The group of the application before the transition
+	 * @param application The application after the transition
+	 */
+	public void transitioned(ApplicationCount previous, Application application) {
+		ApplicationCount current = ApplicationCount.of(application);
+		if (!current.equals(previous)) {
+			increment(previous, -1);
+			increment(current, 1);
+		}
+	}
+
+	/**
+	 * Move applications from their previous group to their current one, with a single update per group
+	 *
+	 * @param previous The groups of the applications before the transition, by application id
+	 * @param applications The applications after the transition
+	 */
+	public void transitioned(Map<String, ApplicationCount> previous, List<Application> applications) {
+		Map<ApplicationCount, Long> deltas = new HashMap<>();
+		applications.forEach(application -> {
+			ApplicationCount before = previous.get(application.getId());
+			ApplicationCount current = ApplicationCount.of(application);
+			if (!current.equals(before)) {
+				deltas.merge(before, -1L, Long::sum);
+				deltas.merge(current, 1L, Long::sum);
+			}
+		});
+		deltas.forEach((count, delta) -> {
+			if (delta != 0) {
+				increment(count, delta);
+			}
+		});
+	}
+
+	private void increment(ApplicationCount count, long delta) {
+		mongoTemplate.upsert(Query.query(where("_id").is(count.getId())),
+				new Update()
+					.set("statut", count.getStatut())
+					.set("nature", count.getNature())
+					.set("receipted", count.isReceipted())
+					.set("issued", count.isIssued())
+					.set("reconstructed", count.isReconstructed())
+					.inc("count", delta),
+				ApplicationCount.class);
+	}
+}
@@ -4,27 +4,44 @@ import static fr.minint.sief.domain.enumeration.ApplicationNature.sejour_etudian
 import static fr.minint.sief.domain.enumeration.ApplicationStatus.validated;
 import static fr.minint.sief.domain.enumeration.ApplicationType.premiere;
 import static java.util.Arrays.asList;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.DBObject;
+
 import fr.minint.sief.domain.Address;
 import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.ApplicationCount;
 import fr.minint.sief.domain.Identity;
 import fr.minint.sief.domain.Project;
 import fr.minint.sief.domain.User;
 import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
 import fr.minint.sief.domain.enumeration.ApplicationType;
 import fr.minint.sief.domain.enumeration.SexType;
 import fr.minint.sief.repository.ApplicationRepository;
-import fr.minint.sief.security.SecurityUtils;
+import fr.minint.sief.repository.UserRepository;
+import fr.minint.sief.security.CurrentUserHolder;
 
 /**
  * Service class for managing application.
@@ -34,19 +51,33 @@ public class ApplicationService {
 
 	private final Logger log = LoggerFactory.getLogger(ApplicationService.class);
 
+	/**
+	 * Attempts of a commutative transition before its conflict is reported.
+	 */
+	private static final int MAX_ATTEMPTS = 3;
+
 	@Inject
-	private UserService userService;
+	private CurrentUserHolder currentUserHolder;
 
 	@Inject
 	private ApplicationRepository applicationRepository;
 
+	@Inject
+	private UserRepository userRepository;
+
+	@Inject
+	private ApplicationCountService applicationCountService;
+
+	@Inject
+	private MongoTemplate mongoTemplate;
+
 	/**
 	 * Get applications owned by logged user
-	 * @return list of applications
+	 * @return stream of applications, backed by a cursor that must be closed
 	 */
-	public List<Application> getUserApplications() {
-		User currentUser = userService.getUser();
-		return applicationRepository.findByEmailOrderByCreationDateDesc(currentUser.getEmail());
+	public Stream<Application> getUserApplications() {
+		User currentUser = currentUserHolder.getUser().get();
+		return applicationRepository.streamByEmailOrderByCreationDateDesc(currentUser.getEmail());
 	}
 
 	/**
@@ -60,9 +91,11 @@ public class ApplicationService {
 	 */
 	public String createApplication(ApplicationType type, ApplicationNature nature) {
 
+		User currentUser = currentUserHolder.getUser().get();
+
 		// Create new application
 		Application application = new Application();
-		application.setEmail(SecurityUtils.getCurrentLogin());
+		application.setEmail(currentUser.getEmail());
 		application.setType(type);
 		application.setNature(nature);
 		application.setModificationDate(DateTime.now());
@@ -76,8 +109,8 @@ public class ApplicationService {
 		}
 		
 		// Get identity and address from user infos if different of last application
-		User currentUser = userService.getUser();
 		application.setUserId(currentUser.getId()); // Utilisé temporairement pour simuler un numéro étranger de l'usager (et non pas pour faire un lien entre 2 documents)
+		application.setLangKey(currentUser.getLangKey()); // Langue des mails de la demande
 		if(!lastApplication.isPresent() || ! lastApplication.get().getIdentity().equals(currentUser.getIdentity())) {
 			application.setIdentity(currentUser.getIdentity());
 		}
@@ -93,10 +126,158 @@ public class ApplicationService {
 		}
 		
 		application = applicationRepository.save(application);
+		applicationCountService.created(application);
 
 		return application.getId();
 	}
 
+	/**
+	 * Apply a transition to an application if it is still in one of the expected status
+	 * 
+	 * @param id
+	 *            The id of the application
+	 * @param expected
+	 *            The status the application must be in
+	 * @param update
+	 *            The fields changed by the transition, by property path
+	 * @return the application after the transition, or empty if it doesn't exist or is not in an expected status
+	 * @see #transition(String, Collection, Criteria, Update)
+	 */
+	public Optional<Application> transition(String id, Collection<ApplicationStatus> expected, Update update) {
+		return transition(id, expected, null, update);
+	}
+
+	/**
+	 * Apply a transition to an application if it is still in one of the expected status and matches the guard.
+	 * <p>
+	 * The transition is a single findAndModify that only sets the changed fields, so the identity, family and documents
+	 * are not rewritten and a concurrent transition makes this one fail instead of being overwritten. The previous
+	 * document is returned by the database and the update is applied to it in memory, to count the transition without
+	 * reading the application again. The version is incremented, so a concurrent read-modify-write of the application
+	 * detects the transition.
+	 * </p>
+	 * 
+	 * @param id
+	 *            The id of the application
+	 * @param expected
+	 *            The status the application must be in
+	 * @param guard
+	 *            Additional criteria the application must match, optional
+	 * @param update
+	 *            The fields changed by the transition, by property path
+	 * @return the application after the transition, or empty if it doesn't exist or doesn't match the guards
+	 */
+	public Optional<Application> transition(String id, Collection<ApplicationStatus> expected, Criteria guard, Update update) {
+		Query query = query(where("id").is(id).and("statut").in(expected));
+		if (guard != null) {
+			query.addCriteria(guard);
+		}
+		update.inc("version", 1);
+		Application application = mongoTemplate.findAndModify(query, update, Application.class);
+		if (application == null) {
+			log.debug("Transition {} of application {} rejected, expected status {}", update, id, expected);
+			return Optional.empty();
+		}
+		ApplicationCount previous = ApplicationCount.of(application);
+		apply(application, update);
+		applicationCountService.transitioned(previous, application);
+		return Optional.of(application);
+	}
+
+	/**
+	 * Apply a transition computed from an application as it was read, if it was not modified since
+	 * 
+	 * @param application
+	 *            The application as it was read
+	 * @param expected
+	 *            The status the application must be in
+	 * @param update
+	 *            The fields changed by the transition, by property path
+	 * @return the application after the transition, or empty if it doesn't exist or is not in an expected status
+	 * @throws OptimisticLockingFailureException
+	 *             if the application was modified since it was read
+	 */
+	public Optional<Application> transition(Application application, Collection<ApplicationStatus> expected, Update update) {
+		Optional<Application> transitioned = transition(application.getId(), expected, where("version").is(application.getVersion()), update);
+		if (!transitioned.isPresent()
+				&& mongoTemplate.exists(query(where("id").is(application.getId()).and("statut").in(expected)), Application.class)) {
+			throw new OptimisticLockingFailureException("Application " + application.getId() + " was modified since version " + application.getVersion());
+		}
+		return transitioned;
+	}
+
+	/**
+	 * Apply a transition computed from the current state of an application, reading it again and retrying when it is
+	 * modified concurrently. Only for transitions that commute with the others, as they are applied in any order.
+	 * 
+	 * @param id
+	 *            The id of the application
+	 * @param expected
+	 *            The status the application must be in
+	 * @param transition
+	 *            The fields changed by the transition, computed from the current application
+	 * @return the application after the transition, or empty if it doesn't exist or is not in an expected status
+	 * @throws OptimisticLockingFailureException
+	 *             if the application is still modified concurrently after the last attempt
+	 */
+	public Optional<Application> transition(String id, Collection<ApplicationStatus> expected, Function<Application, Update> transition) {
+		return retry(() -> Optional.ofNullable(applicationRepository.findOne(id))
+				.filter(application -> expected.contains(application.getStatut()))
+				.flatMap(application -> transition(application, expected, transition.apply(application))));
+	}
+
+	/**
+	 * Copy the identity, coming date and address of an application to its user. The copy overwrites the same fields
+	 * whatever the order, so it is retried when the user is modified concurrently.
+	 * 
+	 * @param application
+	 *            The application to copy
+	 * @return the updated user, or empty if the application has no user
+	 */
+	public Optional<User> updateUserInformation(Application application) {
+		return retry(() -> userRepository.findOneByEmail(application.getEmail())
+				.map(user -> {
+					user.setIdentity(application.getIdentity());
+					user.setComingDate(application.getProject().getComingDate());
+					user.setAddress(application.getAddress());
+					return userRepository.save(user);
+				}));
+	}
+
+	private <T> T retry(Supplier<T> operation) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return operation.get();
+			} catch (OptimisticLockingFailureException e) {
+				if (attempt >= MAX_ATTEMPTS) {
+					throw e;
+				}
+				log.debug("Concurrent modification, attempt {} of {}: {}", attempt, MAX_ATTEMPTS, e.getMessage());
+			}
+		}
+	}
+
+	private static void apply(Application application, Update update) {
+		BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(application);
+		wrapper.setAutoGrowNestedPaths(true);
+		DBObject updateObject = update.getUpdateObject();
+		DBObject set = (DBObject) updateObject.get("$set");
+		if (set != null) {
+			set.keySet().forEach(path -> wrapper.setPropertyValue(path, set.get(path)));
+		}
+		DBObject unset = (DBObject) updateObject.get("$unset");
+		if (unset != null) {
+			unset.keySet().forEach(path -> wrapper.setPropertyValue(path, null));
+		}
+		DBObject inc = (DBObject) updateObject.get("$inc");
+		if (inc != null) {
+			inc.keySet().forEach(path -> {
+				Number value = (Number) wrapper.getPropertyValue(path);
+				wrapper.setPropertyValue(path, (value == null ? 0 : value.longValue()) + ((Number) inc.get(path)).longValue());
+			});
+		}
+	}
+
 	public void updateWithCampusInfos(Application application) {
 		// Call campus (badass style)
 		if ("kim.soon.jeen@gmail.com".equals(application.getEmail())) {
@@ -0,0 +1,164 @@
+package fr.minint.sief.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.DocumentContent;
+import fr.minint.sief.domain.User;
+import fr.minint.sief.domain.enumeration.PersonType;
+import fr.minint.sief.service.util.DocumentStore;
+
+/**
+ * Service for removing the stored contents no document references anymore.
+ * <p>
+ * Documents are copied between the users and their applications by saving whole entities, so the contents are
+ * not reference counted on each save but marked and swept: the checksums of the documents of the applications and
+ * users are collected, then the contents not uploaded recently and not referenced are removed.
+ * </p>
+ */
+@Service
+public class DocumentContentService {
+
+    private final Logger log = LoggerFactory.getLogger(DocumentContentService.class);
+
+    private static final String CHECKSUM = "checksum";
+
+    private static final List<Class<?>> REFERENCING = Arrays.asList(Application.class, User.class);
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private MongoTemplate mongoTemplate;
+
+    @Inject
+    private DocumentStore documentStore;
+
+    /**
+     * Time an uploaded content is kept without being referenced, for the document to be saved.
+     */
+    private int gracePeriodHours;
+
+    @PostConstruct
+    public void init() {
+        RelaxedPropertyResolver propertyResolver = new RelaxedPropertyResolver(env, "documents.cleanup.");
+        this.gracePeriodHours = propertyResolver.getProperty("gracePeriodHours", Integer.class, 24);
+    }
+
+    /**
+     * Remove the contents which are not referenced by any document.
+     * <p>
+     * This is scheduled to run every day, at 03:00 (am).
+     * </p>
+     */
+    @Scheduled(cron = "${documents.cleanup.cron:0 0 3 * * ?}")
+    public void removeUnreferencedContents() {
+        DateTime cutoff = DateTime.now().minusHours(gracePeriodHours);
+        Set<String> referenced = getReferencedChecksums();
+        Query candidates = query(where("lastUploadDate").lt(cutoff));
+        candidates.fields().include("checksum");
+        int removed = 0;
+        try (CloseableIterator<DocumentContent> contents = mongoTemplate.stream(candidates, DocumentContent.class)) {
+            while (contents.hasNext()) {
+                String checksum = contents.next().getChecksum();
+                if (!referenced.contains(checksum) && remove(checksum, cutoff)) {
+                    removed++;
+                }
+            }
+        }
+        log.info("Removed {} unreferenced document contents, {} are referenced", removed, referenced.size());
+    }
+
+    /**
+     * Remove a content, unless it was uploaded again since the references were collected.
+     * <p>
+     * The content is marked as being removed first, then its file is deleted, and the content last. An upload of the
+     * same content meanwhile waits for the content to be gone, so it never relies on a file about to be deleted.
+     * </p>
+     */
+    private boolean remove(String checksum, DateTime cutoff) {
+        DateTime removalDate = DateTime.now();
+        Query unmarked = query(where("checksum").is(checksum).and("lastUploadDate").lt(cutoff).orOperator(
+                where("removalDate").exists(false),
+                where("removalDate").lt(removalDate.minus(DocumentContent.REMOVAL_LEASE_MILLIS))));
+        if (mongoTemplate.findAndModify(unmarked, new Update().set("removalDate", removalDate), DocumentContent.class) == null) {
+            return false;
+        }
+        try {
+            documentStore.delete(checksum);
+        } catch (IOException e) {
+            log.warn("Could not remove document content {}: {}", checksum, e.getMessage());
+            mongoTemplate.updateFirst(query(where("checksum").is(checksum).and("removalDate").is(removalDate)),
+                    new Update().unset("removalDate"), DocumentContent.class);
+            return false;
+        }
+        mongoTemplate.remove(query(where("checksum").is(checksum).and("removalDate").is(removalDate)), DocumentContent.class);
+        log.debug("Removed unreferenced document content {}", checksum);
+        return true;
+    }
+
+    /**
+     * Collect the checksums of the documents of the applications and the users, reading only the documents
+     */
+    private Set<String> getReferencedChecksums() {
+        DBObject fields = new BasicDBObject();
+        for (String documents : Arrays.asList("identity.documents", "address.documents", "project.documents")) {
+            fields.put(documents + "." + CHECKSUM, 1);
+        }
+        for (PersonType type : PersonType.values()) {
+            fields.put("identity.family." + type + ".identity.documents." + CHECKSUM, 1);
+        }
+        Set<String> referenced = new HashSet<>();
+        REFERENCING.forEach(entityClass -> {
+            try (DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(entityClass))
+                    .find(new BasicDBObject(), fields)) {
+                cursor.forEach(dbObject -> collectChecksums(dbObject, referenced));
+            }
+        });
+        return referenced;
+    }
+
+    private static void collectChecksums(Object value, Set<String> checksums) {
+        if (value instanceof Collection) {
+            ((Collection<?>) value).forEach(element -> collectChecksums(element, checksums));
+        } else if (value instanceof Map) {
+            ((Map<?, ?>) value).forEach((key, element) -> {
+                if (CHECKSUM.equals(key) && element instanceof String) {
+                    checksums.add((String) element);
+                } else {
+                    collectChecksums(element, checksums);
+                }
+            });
+        } else if (value instanceof DBObject) {
+            collectChecksums(((DBObject) value).toMap(), checksums);
+        }
+    }
+}
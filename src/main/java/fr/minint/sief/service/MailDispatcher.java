@@ -0,0 +1,210 @@
+package fr.minint.sief.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.commons.lang.CharEncoding;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.minint.sief.domain.OutboxMail;
+
+/**
+ * Service for sending the e-mails of the outbox.
+ * <p>
+ * Pending mails are claimed by batch, each batch being sent over a single SMTP connection.
+ * Failed mails are retried with an exponential backoff, and the sending rate is limited.
+ * </p>
+ */
+@Service
+public class MailDispatcher {
+
+    private final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    /**
+     * Time a claimed mail is hidden from other dispatchers while its batch is sent.
+     */
+    private static final int CLAIM_LEASE_MINUTES = 5;
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private JavaMailSenderImpl javaMailSender;
+
+    @Inject
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * System default email address that sends the e-mails.
+     */
+    private String from;
+
+    private int batchSize;
+
+    private int maxAttempts;
+
+    private long backoff;
+
+    private double ratePerSecond;
+
+    @PostConstruct
+    public void init() {
+        RelaxedPropertyResolver propertyResolver = new RelaxedPropertyResolver(env, "mail.outbox.");
+        this.from = env.getProperty("mail.from");
+        this.batchSize = propertyResolver.getProperty("batchSize", Integer.class, 50);
+        this.maxAttempts = propertyResolver.getProperty("maxAttempts", Integer.class, 5);
+        this.backoff = propertyResolver.getProperty("backoff", Long.class, 30000L);
+        this.ratePerSecond = propertyResolver.getProperty("ratePerSecond", Double.class, 10d);
+    }
+
+    /**
+     * Send the pending mails, batch after batch until the outbox is drained.
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.delay:5000}")
+    public void dispatch() {
+        List<OutboxMail> batch;
+        do {
+            long start = System.currentTimeMillis();
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                send(batch);
+                throttle(batch.size(), start);
+            }
+        } while (batch.size() == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Claim the oldest pending mails by moving their next attempt date after the lease, so that
+     * another instance won't send them and a crash before the end of the batch will only delay them.
+     */
+    private List<OutboxMail> claimBatch() {
+        DateTime now = DateTime.now();
+        Query pending = new Query(where("nextAttemptDate").lte(now)).with(new Sort(Direction.ASC, "nextAttemptDate"));
+        Update claim = new Update().set("nextAttemptDate", now.plusMinutes(CLAIM_LEASE_MINUTES));
+        List<OutboxMail> batch = new ArrayList<>();
+        while (batch.size() < batchSize) {
+            OutboxMail mail = mongoTemplate.findAndModify(pending, claim, OutboxMail.class);
+            if (mail == null) {
+                break;
+            }
+            batch.add(mail);
+        }
+        return batch;
+    }
+
+    private void send(List<OutboxMail> batch) {
+        Map<MimeMessage, OutboxMail> messages = new LinkedHashMap<>();
+        for (OutboxMail mail : batch) {
+            try {
+                messages.put(createMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                // The mail itself is invalid, retrying won't help
+                abandon(mail, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Collections.emptyMap();
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[messages.size()]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? allFailed(messages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = allFailed(messages, e);
+        }
+
+        for (Map.Entry<MimeMessage, OutboxMail> message : messages.entrySet()) {
+            Exception failure = failures.get(message.getKey());
+            if (failure == null) {
+                sent(message.getValue());
+            } else {
+                failed(message.getValue(), failure);
+            }
+        }
+        log.debug("Sent {} e-mails of a batch of {}", messages.size() - failures.size(), batch.size());
+    }
+
+    private MimeMessage createMimeMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.isMultipart(), CharEncoding.UTF_8);
+        message.setTo(mail.getTo());
+        message.setFrom(from);
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getContent(), mail.isHtml());
+        return mimeMessage;
+    }
+
+    private Map<Object, Exception> allFailed(Map<MimeMessage, OutboxMail> messages, Exception e) {
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private void sent(OutboxMail mail) {
+        mongoTemplate.updateFirst(Query.query(where("id").is(mail.getId())),
+                new Update().set("sentDate", DateTime.now()).unset("nextAttemptDate"),
+                OutboxMail.class);
+    }
+
+    private void failed(OutboxMail mail, Exception e) {
+        int attempts = mail.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            abandon(mail, e);
+            return;
+        }
+        DateTime nextAttempt = DateTime.now().plus(backoff << (attempts - 1));
+        log.warn("E-mail could not be sent to user '{}', retrying at {}, exception is: {}", mail.getTo(), nextAttempt, e.getMessage());
+        mongoTemplate.updateFirst(Query.query(where("id").is(mail.getId())),
+                new Update().set("attempts", attempts).set("nextAttemptDate", nextAttempt).set("lastError", e.getMessage()),
+                OutboxMail.class);
+    }
+
+    private void abandon(OutboxMail mail, Exception e) {
+        log.error("E-mail could not be sent to user '{}' after {} attempts, giving up, exception is: {}",
+                mail.getTo(), mail.getAttempts() + 1, e.getMessage());
+        mongoTemplate.updateFirst(Query.query(where("id").is(mail.getId())),
+                new Update().inc("attempts", 1).unset("nextAttemptDate").set("lastError", e.getMessage()),
+                OutboxMail.class);
+    }
+
+    /**
+     * Wait long enough after a batch for the sending rate not to exceed the configured rate.
+     */
+    private void throttle(int sent, long start) {
+        long wait = (long) (sent * 1000 / ratePerSecond) - (System.currentTimeMillis() - start);
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -2,35 +2,47 @@ package fr.minint.sief.service;
 
 import static fr.minint.sief.domain.enumeration.ApplicationType.renouvellement;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
-import javax.mail.internet.MimeMessage;
 
-import org.apache.commons.lang.CharEncoding;
 import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.core.env.Environment;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateProcessingParameters;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring4.SpringTemplateEngine;
 
 import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.OutboxMail;
 import fr.minint.sief.domain.User;
 import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.repository.OutboxMailRepository;
 import fr.minint.sief.repository.UserRepository;
+import fr.minint.sief.security.CurrentUserHolder;
 
 /**
  * Service for sending e-mails.
  * <p/>
  * <p>
- * We use the @Async annotation to send e-mails asynchronously.
+ * E-mails are rendered and written to the outbox, they are sent later by the MailDispatcher
+ * so that the request doesn't wait for the SMTP server and no mail is lost on restart.
+ * </p>
+ * <p>
+ * Templates are parsed on startup and kept by the template engine, subjects are resolved once per locale,
+ * and the locale comes from the application so rendering a mail doesn't query the database.
  * </p>
  */
 @Service
@@ -38,11 +50,22 @@ public class MailService {
 
     private final Logger log = LoggerFactory.getLogger(MailService.class);
 
-    @Inject
-    private Environment env;
+    private static final String DEFAULT_LANG_KEY = "fr";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern("dd/MM/yyyy");
+
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormat.forPattern("HH:mm");
+
+    private static final List<String> TEMPLATES = Arrays.asList("activationEmail", "passwordResetEmail", "paymentEmail",
+            "admissibilityEmail", "admissibilityRenewalEmail", "rdvEmail", "decisionEmail", "permitTmpEmail", "permitEmail",
+            "permitRenewalEmail", "ceremonyEmail", "arrivalEmail", "renewalEmail");
 
     @Inject
-    private JavaMailSenderImpl javaMailSender;
+    private OutboxMailRepository outboxMailRepository;
+
+    private final Map<String, Locale> locales = new ConcurrentHashMap<>();
+
+    private final Map<Locale, Map<String, String>> subjects = new ConcurrentHashMap<>();
 
     @Inject
     private MessageSource messageSource;
@@ -50,67 +73,102 @@ public class MailService {
     @Inject
     private SpringTemplateEngine templateEngine;
     
+    @Inject
+    private CurrentUserHolder currentUserHolder;
+
     @Inject
     private UserRepository userRepository;
 
     /**
-     * System default email address that sends the e-mails.
+     * Parse the templates once, the template engine keeps them so that a mail is only rendered.
      */
-    private String from;
-
     @PostConstruct
     public void init() {
-        this.from = env.getProperty("mail.from");
+        if (!templateEngine.isInitialized()) {
+            templateEngine.initialize();
+        }
+        Context context = new Context(getLocale(DEFAULT_LANG_KEY));
+        TEMPLATES.forEach(template -> templateEngine.getTemplateRepository()
+                .getTemplate(new TemplateProcessingParameters(templateEngine.getConfiguration(), template, context)));
+        log.debug("Parsed mail templates {}", TEMPLATES);
     }
 
-    @Async
-    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        log.debug("Send e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
-                isMultipart, isHtml, to, subject, content);
+    /**
+     * Locale of the mails of an application, stored on the application and kept up to date when its user changes language.
+     * Only the applications created before their language was stored need the user.
+     */
+    private Locale getLocale(Application application) {
+        String langKey = application.getLangKey();
+        if (langKey == null) {
+            langKey = currentUserHolder.getUser(application.getEmail()).map(User::getLangKey).orElse(null);
+        }
+        return getLocale(langKey);
+    }
 
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, CharEncoding.UTF_8);
-            message.setTo(to);
-            message.setFrom(from);
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent e-mail to User '{}'", to);
-        } catch (Exception e) {
-            log.warn("E-mail could not be sent to user '{}', exception is: {}", to, e.getMessage());
+    /**
+     * Languages of the mails of many applications by email, the users of the applications created before their
+     * language was stored are read with a single query.
+     */
+    private Map<String, String> getLangKeys(List<Application> applications) {
+        Map<String, String> langKeys = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        applications.forEach(application -> {
+            if (application.getLangKey() != null) {
+                langKeys.put(application.getEmail(), application.getLangKey());
+            } else {
+                unknown.add(application.getEmail());
+            }
+        });
+        if (!unknown.isEmpty()) {
+            userRepository.findLangKeyByEmailIn(unknown).forEach(user -> langKeys.put(user.getEmail(), user.getLangKey()));
         }
+        return langKeys;
+    }
+
+    private Locale getLocale(String langKey) {
+        return locales.computeIfAbsent(langKey != null ? langKey : DEFAULT_LANG_KEY, Locale::forLanguageTag);
+    }
+
+    /**
+     * Subject of the mails, resolved once per locale.
+     */
+    private String getSubject(String key, Locale locale) {
+        return subjects
+                .computeIfAbsent(locale, l -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> messageSource.getMessage(k, null, locale));
+    }
+
+    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+        log.debug("Queue e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+                isMultipart, isHtml, to, subject, content);
+        outboxMailRepository.save(new OutboxMail(to, subject, content, isMultipart, isHtml));
     }
 
-    @Async
     public void sendActivationEmail(User user, String baseUrl) {
         log.debug("Sending activation e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Locale locale = getLocale(user.getLangKey());
         Context context = new Context(locale);
         context.setVariable("user", user);
         context.setVariable("baseUrl", baseUrl);
         String content = templateEngine.process("activationEmail", context);
-        String subject = messageSource.getMessage("email.activation.title", null, locale);
+        String subject = getSubject("email.activation.title", locale);
         sendEmail(user.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendPasswordResetMail(User user, String baseUrl) {
         log.debug("Sending password reset e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Locale locale = getLocale(user.getLangKey());
         Context context = new Context(locale);
         context.setVariable("user", user);
         context.setVariable("baseUrl", baseUrl);
         String content = templateEngine.process("passwordResetEmail", context);
-        String subject = messageSource.getMessage("email.reset.title", null, locale);
+        String subject = getSubject("email.reset.title", locale);
         sendEmail(user.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendApplicationPaidEmail(Application application, String baseUrl) {
         log.debug("Sending application payment e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
@@ -119,17 +177,16 @@ public class MailService {
         context.setVariable("emailPaymentAdmissible", "email.payment.admissible."+application.getNature());
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         context.setVariable("emailSignatureEnd", "email.signature.administration."+application.getNature());
-        context.setVariable("paymentDate", DateTimeFormat.forPattern("dd/MM/yyyy").print(application.getPaymentDate()));
-        context.setVariable("paymentHour", DateTimeFormat.forPattern("HH:mm").print(application.getPaymentDate()));
+        context.setVariable("paymentDate", DATE_FORMATTER.print(application.getPaymentDate()));
+        context.setVariable("paymentHour", HOUR_FORMATTER.print(application.getPaymentDate()));
         String content = templateEngine.process("paymentEmail", context);
-        String subject = messageSource.getMessage("email.payment.title", null, locale);
+        String subject = getSubject("email.payment.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendApplicationReceivableEmail(Application application, String baseUrl) {
         log.debug("Sending application admissibility e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("applicationId", application.getId());
@@ -138,19 +195,18 @@ public class MailService {
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         context.setVariable("emailSignatureEnd", "email.signature.administration."+application.getNature());
         String content = templateEngine.process(application.getType() == renouvellement ? "admissibilityRenewalEmail" : "admissibilityEmail", context);
-        String subject = messageSource.getMessage("email.admissibility.title", null, locale);
+        String subject = getSubject("email.admissibility.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendApplicationScheduledEmail(Application application, String baseUrl) {
         log.debug("Sending application scheduled e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
-        context.setVariable("rdvDate", DateTimeFormat.forPattern("dd/MM/yyyy").print(application.getRdvDate()));
-        context.setVariable("rdvHour", DateTimeFormat.forPattern("HH:mm").print(application.getRdvDate()));
+        context.setVariable("rdvDate", DATE_FORMATTER.print(application.getRdvDate()));
+        context.setVariable("rdvHour", HOUR_FORMATTER.print(application.getRdvDate()));
         context.setVariable("applicationId", application.getId());
         context.setVariable("emailRdvName", "email.rdv.name."+application.getNature());
         context.setVariable("emailRdvStreet", "email.rdv.street."+application.getNature());
@@ -159,14 +215,13 @@ public class MailService {
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         context.setVariable("emailSignatureEnd", "email.signature.administration."+application.getNature());
         String content = templateEngine.process("rdvEmail", context);
-        String subject = messageSource.getMessage("email.rdv.title", null, locale);
+        String subject = getSubject("email.rdv.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendApplicationValidatedEmail(Application application, String baseUrl) {
         log.debug("Sending application validated e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
@@ -175,14 +230,28 @@ public class MailService {
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         context.setVariable("emailSignatureEnd", "email.signature.administration."+application.getNature());
         String content = templateEngine.process("decisionEmail", context);
-        String subject = messageSource.getMessage("email.decision.title", null, locale);
+        String subject = getSubject("email.decision.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendPermitEmail(Application application, String baseUrl) {
+        outboxMailRepository.save(createPermitEmail(application, getLocale(application), baseUrl));
+    }
+
+    /**
+     * Queue the permit e-mails of many applications with a single insert
+     */
+    public void sendPermitEmails(List<Application> applications, String baseUrl) {
+        if (!applications.isEmpty()) {
+            Map<String, String> langKeys = getLangKeys(applications);
+            outboxMailRepository.save(applications.stream()
+                    .map(application -> createPermitEmail(application, getLocale(langKeys.get(application.getEmail())), baseUrl))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private OutboxMail createPermitEmail(Application application, Locale locale, String baseUrl) {
         log.debug("Sending permit e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
@@ -197,48 +266,45 @@ public class MailService {
         } else {
         	content = templateEngine.process(application.getType() == renouvellement ? "permitRenewalEmail" : "permitEmail", context);
         }
-        String subject = messageSource.getMessage("email.permit.title", null, locale);
-        sendEmail(application.getEmail(), subject, content, false, true);
+        String subject = getSubject("email.permit.title", locale);
+        return new OutboxMail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendCeremonyEmail(Application application, String baseUrl) {
         log.debug("Sending ceremony e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
-        context.setVariable("ceremonyDate", DateTimeFormat.forPattern("dd/MM/yyyy").print(application.getDecisionDate()));
-        context.setVariable("ceremonyHour", DateTimeFormat.forPattern("HH:mm").print(application.getDecisionDate()));
+        context.setVariable("ceremonyDate", DATE_FORMATTER.print(application.getDecisionDate()));
+        context.setVariable("ceremonyHour", HOUR_FORMATTER.print(application.getDecisionDate()));
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         String content = templateEngine.process("ceremonyEmail", context);
-        String subject = messageSource.getMessage("email.ceremony.title", null, locale);
+        String subject = getSubject("email.ceremony.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendArrivalEmail(Application application, String baseUrl) {
         log.debug("Sending arrival e-mail to '{}'", application.getEmail());
-        Locale locale = Locale.forLanguageTag(userRepository.findOneByEmail(application.getEmail()).get().getLangKey());
+        Locale locale = getLocale(application);
         Context context = new Context(locale);
         context.setVariable("user", application.getIdentity());
         context.setVariable("baseUrl", baseUrl);
         context.setVariable("emailSignature", "email.signature."+application.getNature());
         String content = templateEngine.process("arrivalEmail", context);
-        String subject = messageSource.getMessage("email.arrival.title", null, locale);
+        String subject = getSubject("email.arrival.title", locale);
         sendEmail(application.getEmail(), subject, content, false, true);
     }
 
-    @Async
     public void sendRenewalEmail(User user, String baseUrl) {
         log.debug("Sending renewal e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Locale locale = getLocale(user.getLangKey());
         Context context = new Context(locale);
         context.setVariable("user", user.getIdentity());
         context.setVariable("baseUrl", baseUrl);
         context.setVariable("emailSignature", "email.signature." + ApplicationNature.sejour_etudiant);
         String content = templateEngine.process("renewalEmail", context);
-        String subject = messageSource.getMessage("email.renewal.title", null, locale);
+        String subject = getSubject("email.renewal.title", locale);
         sendEmail(user.getEmail(), subject, content, false, true);
     }
 }
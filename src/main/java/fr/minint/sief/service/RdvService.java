@@ -0,0 +1,342 @@
+package fr.minint.sief.service;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.RdvCalendar;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+import fr.minint.sief.security.SecurityUtils;
+import fr.minint.sief.service.util.SlotHolds;
+import fr.minint.sief.service.util.SlotIndex;
+
+/**
+ * Service class for managing the appointment slots of the sites.
+ * <p>
+ * Each site opens its counters on working days, following its opening hours. The calendars are opened in the
+ * database up to a horizon, and a slot is reserved by decrementing its free places only if some are left, in a
+ * single findAndModify, so two applicants can never get the last place of a slot. The free slots are listed from
+ * an in-memory bitmap index, rebuilt periodically from the calendars to catch up with the other instances.
+ * </p>
+ * <p>
+ * A user picking a slot holds one of its places for a few minutes, so the slot is still free when the appointment
+ * is confirmed. Holds are kept in memory only, the place being decremented in the calendar on confirmation.
+ * </p>
+ */
+@Service
+public class RdvService {
+
+    private final Logger log = LoggerFactory.getLogger(RdvService.class);
+
+    private static final String DEFAULT_HOURS = "09:00-12:00,14:00-18:00";
+
+    private static final String[] SLOT_HOURS = new String[RdvCalendar.SLOTS_PER_DAY];
+
+    static {
+        for (int slot = 0; slot < RdvCalendar.SLOTS_PER_DAY; slot++) {
+            SLOT_HOURS[slot] = LocalTime.MIDNIGHT.plusMinutes(slot * RdvCalendar.SLOT_MINUTES).toString("HH:mm");
+        }
+    }
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private MongoTemplate mongoTemplate;
+
+    private final SlotIndex index = new SlotIndex();
+
+    private SlotHolds holds;
+
+    /**
+     * Number of counters open, by site and slot
+     */
+    private final Map<String, List<Integer>> capacities = new LinkedHashMap<>();
+
+    private final Map<ApplicationNature, String> sites = new EnumMap<>(ApplicationNature.class);
+
+    /**
+     * Number of days calendars are opened in advance
+     */
+    private int horizonDays;
+
+    /**
+     * Number of days before the first day an appointment can be taken
+     */
+    private int minDelayDays;
+
+    @PostConstruct
+    public void init() {
+        RelaxedPropertyResolver propertyResolver = new RelaxedPropertyResolver(env, "rdv.");
+        this.horizonDays = propertyResolver.getProperty("horizonDays", Integer.class, 60);
+        this.minDelayDays = propertyResolver.getProperty("minDelayDays", Integer.class, 2);
+        this.holds = new SlotHolds(index, TimeUnit.MINUTES.toMillis(propertyResolver.getProperty("holdMinutes", Integer.class, 5)),
+                TimeUnit.SECONDS.toMillis(1));
+        String defaultSite = propertyResolver.getProperty("defaultSite", "default");
+        for (ApplicationNature nature : ApplicationNature.values()) {
+            sites.put(nature, propertyResolver.getProperty("natures." + nature, defaultSite));
+        }
+        Set<String> siteNames = new LinkedHashSet<>();
+        propertyResolver.getSubProperties("sites.").keySet().forEach(key -> siteNames.add(key.split("\\.")[0]));
+        siteNames.addAll(sites.values());
+        for (String site : siteNames) {
+            int counters = propertyResolver.getProperty("sites." + site + ".counters", Integer.class, 1);
+            String hours = propertyResolver.getProperty("sites." + site + ".hours", DEFAULT_HOURS);
+            capacities.put(site, getCapacity(counters, hours));
+        }
+        log.debug("Appointment sites {} of natures {}", capacities.keySet(), sites);
+    }
+
+    /**
+     * Get the capacity of each slot of a day, from the opening hours of the counters
+     *
+     * @param counters The number of counters
+     * @param hours The opening hours, as comma separated HH:mm-HH:mm ranges
+     * @return The capacity, by slot
+     */
+    private static List<Integer> getCapacity(int counters, String hours) {
+        int[] capacity = new int[RdvCalendar.SLOTS_PER_DAY];
+        for (String range : hours.split(",")) {
+            String[] bounds = range.trim().split("-");
+            int start = LocalTime.parse(bounds[0].trim()).getMillisOfDay() / DateTimeConstants.MILLIS_PER_MINUTE / RdvCalendar.SLOT_MINUTES;
+            int end = LocalTime.parse(bounds[1].trim()).getMillisOfDay() / DateTimeConstants.MILLIS_PER_MINUTE / RdvCalendar.SLOT_MINUTES;
+            for (int slot = start; slot < end; slot++) {
+                capacity[slot] = counters;
+            }
+        }
+        List<Integer> list = new ArrayList<>(capacity.length);
+        for (int slotCapacity : capacity) {
+            list.add(slotCapacity);
+        }
+        return list;
+    }
+
+    /**
+     * Open the calendars of the working days up to the horizon, leaving the ones already opened untouched.
+     * <p>
+     * This is scheduled to run every day, at 01:00 (am).
+     * </p>
+     */
+    @Scheduled(cron = "${rdv.cron:0 0 1 * * ?}")
+    public void openCalendars() {
+        LocalDate today = LocalDate.now();
+        capacities.forEach((site, capacity) -> {
+            for (int i = 0; i <= horizonDays; i++) {
+                LocalDate day = today.plusDays(i);
+                if (day.getDayOfWeek() < DateTimeConstants.SATURDAY) {
+                    mongoTemplate.upsert(query(where("id").is(getId(site, day))),
+                            new Update().setOnInsert("site", site)
+                                    .setOnInsert("day", day.toDateTimeAtStartOfDay())
+                                    .setOnInsert("capacity", capacity)
+                                    .setOnInsert("free", capacity),
+                            RdvCalendar.class);
+                }
+            }
+        });
+        log.debug("Opened appointment calendars up to {}", today.plusDays(horizonDays));
+    }
+
+    /**
+     * Rebuild the index of the free slots from the calendars.
+     * <p>
+     * This is scheduled to run every minute by default.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${rdv.refreshDelay:60000}")
+    public void rebuildIndex() {
+        Query calendars = query(where("day").gte(getFirstDay().toDateTimeAtStartOfDay()));
+        calendars.fields().include("site").include("day").include("free");
+        try (CloseableIterator<RdvCalendar> iterator = mongoTemplate.stream(calendars, RdvCalendar.class)) {
+            index.rebuild(iterator);
+        }
+        holds.apply();
+    }
+
+    /**
+     * Release the expired holds.
+     * <p>
+     * This is scheduled to run every second, for the slots to show up again in the free slots. Holds and
+     * reservations also release the expired holds first, so they never count a hold after its deadline.
+     * </p>
+     */
+    @Scheduled(fixedRate = 1000)
+    public void expireHolds() {
+        holds.expire(System.currentTimeMillis());
+    }
+
+    /**
+     * Get the free slots of the site of a nature of application
+     *
+     * @param nature The nature of the application
+     * @return The hours of the free slots, by day
+     */
+    public SortedMap<DateTime, Set<String>> getFreeSlots(ApplicationNature nature) {
+        SortedMap<DateTime, Set<String>> freeSlots = new TreeMap<>();
+        index.getFreeSlots(sites.get(nature), getFirstDay()).forEach((day, slots) -> {
+            Set<String> hours = new LinkedHashSet<>();
+            slots.stream().forEach(slot -> hours.add(SLOT_HOURS[slot]));
+            freeSlots.put(day.toDateTimeAtStartOfDay(), hours);
+        });
+        return freeSlots;
+    }
+
+    /**
+     * Get an application of the current user for which an appointment can be taken, either waiting for one or
+     * already scheduled, to take another one
+     *
+     * @param applicationId The id of the application
+     * @return The application with only its nature, status and appointment date, or empty if the application is not
+     *         one of the current user waiting for an appointment or scheduled
+     */
+    public Optional<Application> getBooking(String applicationId) {
+        Query application = query(where("id").is(applicationId)
+                .and("email").is(SecurityUtils.getCurrentLogin())
+                .and("statut").in(ApplicationStatus.receivable, ApplicationStatus.scheduled));
+        application.fields().include("nature").include("statut").include("rdvDate");
+        return Optional.ofNullable(mongoTemplate.findOne(application, Application.class));
+    }
+
+    /**
+     * Get the site where the current user takes an appointment for an application
+     *
+     * @param applicationId The id of the application
+     * @return The site, or empty if the application is not one of the current user waiting for an appointment or
+     *         scheduled
+     */
+    public Optional<String> getSite(String applicationId) {
+        return getBooking(applicationId).map(a -> getSite(a.getNature()));
+    }
+
+    /**
+     * Get the site of a nature of application
+     *
+     * @param nature The nature of the application
+     * @return The site
+     */
+    public String getSite(ApplicationNature nature) {
+        return sites.get(nature);
+    }
+
+    /**
+     * Hold a place in a slot for the current user, until the appointment is confirmed or the hold expires
+     *
+     * @param site The site of the slot
+     * @param date The start of the slot
+     * @return true if a place was held, false if the slot does not exist or all its free places are held
+     */
+    public boolean hold(String site, DateTime date) {
+        int slot = getSlot(date);
+        LocalDate day = new LocalDate(date, DateTimeZone.getDefault());
+        if (slot < 0 || day.isBefore(getFirstDay())) {
+            return false;
+        }
+        Query slotQuery = query(where("id").is(getId(site, day)));
+        slotQuery.fields().slice("free", slot, 1);
+        RdvCalendar calendar = mongoTemplate.findOne(slotQuery, RdvCalendar.class);
+        if (calendar == null || calendar.getFree().isEmpty()) {
+            return false;
+        }
+        holds.expire(System.currentTimeMillis());
+        return holds.hold(SecurityUtils.getCurrentLogin(), site, day, slot, calendar.getFree().get(0));
+    }
+
+    /**
+     * Reserve a place in a slot, taking the place held by the current user if any
+     * <p>
+     * The places held by the other users are left free.
+     * </p>
+     *
+     * @param site The site of the slot
+     * @param date The start of the slot
+     * @return true if a place was reserved, false if the slot does not exist or is full
+     */
+    public boolean reserve(String site, DateTime date) {
+        int slot = getSlot(date);
+        LocalDate day = new LocalDate(date, DateTimeZone.getDefault());
+        if (slot < 0 || day.isBefore(getFirstDay())) {
+            return false;
+        }
+        holds.expire(System.currentTimeMillis());
+        holds.take(SecurityUtils.getCurrentLogin(), site, day, slot);
+        Query slotQuery = query(where("id").is(getId(site, day)).and("free." + slot).gt(holds.getHolds(site, day, slot)));
+        slotQuery.fields().include("free");
+        RdvCalendar calendar = mongoTemplate.findAndModify(slotQuery, new Update().inc("free." + slot, -1),
+                options().returnNew(true), RdvCalendar.class);
+        if (calendar == null) {
+            index.set(site, day, slot, false);
+            return false;
+        }
+        holds.update(site, day, slot, calendar.getFree().get(slot));
+        return true;
+    }
+
+    /**
+     * Release a place reserved in a slot
+     *
+     * @param site The site of the slot
+     * @param date The start of the slot
+     */
+    public void release(String site, DateTime date) {
+        int slot = getSlot(date);
+        LocalDate day = new LocalDate(date, DateTimeZone.getDefault());
+        Query slotQuery = query(where("id").is(getId(site, day)));
+        slotQuery.fields().include("free");
+        RdvCalendar calendar = mongoTemplate.findAndModify(slotQuery, new Update().inc("free." + slot, 1),
+                options().returnNew(true), RdvCalendar.class);
+        if (calendar != null) {
+            holds.update(site, day, slot, calendar.getFree().get(slot));
+        }
+    }
+
+    private LocalDate getFirstDay() {
+        return LocalDate.now().plusDays(minDelayDays);
+    }
+
+    private static String getId(String site, LocalDate day) {
+        return site + "/" + day;
+    }
+
+    /**
+     * Get the index of the slot starting at a date
+     *
+     * @return The index of the slot, or -1 if no slot starts at this date
+     */
+    private static int getSlot(DateTime date) {
+        int millisOfDay = date.withZone(DateTimeZone.getDefault()).getMillisOfDay();
+        int slotMillis = RdvCalendar.SLOT_MINUTES * DateTimeConstants.MILLIS_PER_MINUTE;
+        return millisOfDay % slotMillis == 0 ? millisOfDay / slotMillis : -1;
+    }
+}
@@ -2,6 +2,7 @@ package fr.minint.sief.service;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -11,19 +12,22 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import fr.minint.sief.config.CacheConfiguration;
 import fr.minint.sief.domain.Address;
 import fr.minint.sief.domain.Authority;
 import fr.minint.sief.domain.Identity;
 import fr.minint.sief.domain.User;
 import fr.minint.sief.domain.enumeration.UserType;
+import fr.minint.sief.repository.ApplicationRepository;
 import fr.minint.sief.repository.AuthorityRepository;
 import fr.minint.sief.repository.PersistentTokenRepository;
 import fr.minint.sief.repository.UserRepository;
-import fr.minint.sief.security.SecurityUtils;
+import fr.minint.sief.security.CurrentUserHolder;
 import fr.minint.sief.service.util.RandomUtil;
 
 /**
@@ -46,6 +50,12 @@ public class UserService {
     @Inject
     private AuthorityRepository authorityRepository;
 
+    @Inject
+    private CurrentUserHolder currentUserHolder;
+
+    @Inject
+    private ApplicationRepository applicationRepository;
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         userRepository.findOneByActivationKey(key)
@@ -112,8 +122,15 @@ public class UserService {
         return newUser;
     }
 
+    /**
+     * The email is the login and the cache key of the user, so the user cached under the current login is evicted
+     * as the save only evicts it under its new email.
+     */
+    @CacheEvict(value = CacheConfiguration.USERS_BY_EMAIL, key = "T(fr.minint.sief.security.SecurityUtils).getCurrentLogin()")
     public void updateUserInformation(Identity identity, DateTime comingDate, Address address, String email, String langKey) {
-        userRepository.findOneByEmail(SecurityUtils.getCurrentLogin()).ifPresent(u -> {
+        currentUserHolder.getUser().ifPresent(u -> {
+            String applicationsEmail = u.getEmail();
+            boolean langKeyChanged = !Objects.equals(u.getLangKey(), langKey);
             u.setIdentity(identity);
             u.setComingDate(comingDate);
             u.setAddress(address);
@@ -121,11 +138,15 @@ public class UserService {
             u.setLangKey(langKey);
             userRepository.save(u);
             log.debug("Changed Information for User: {}", u);
+            if (langKeyChanged) {
+                // The mails of the applications are rendered in the language stored on them
+                applicationRepository.updateLangKey(applicationsEmail, langKey);
+            }
         });
     }
 
     public void changePassword(String password) {
-        userRepository.findOneByEmail(SecurityUtils.getCurrentLogin()).ifPresent(u-> {
+        currentUserHolder.getUser().ifPresent(u-> {
             String encryptedPassword = passwordEncoder.encode(password);
             u.setPassword(encryptedPassword);
             userRepository.save(u);
@@ -134,11 +155,11 @@ public class UserService {
     }
 
     public User getUser() {
-        return userRepository.findOneByEmail(SecurityUtils.getCurrentLogin()).get();
+        return currentUserHolder.getUser().get();
     }
 
     public User getUserWithAuthorities() {
-        User currentUser = userRepository.findOneByEmail(SecurityUtils.getCurrentLogin()).get();
+        User currentUser = currentUserHolder.getUser().get();
         currentUser.getAuthorities().size(); // eagerly load the association
         return currentUser;
     }
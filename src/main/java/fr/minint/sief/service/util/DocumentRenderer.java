@@ -0,0 +1,372 @@
+package fr.minint.sief.service.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service rendering the uploaded images as normalized JPEG previews and thumbnails.
+ * <p>
+ * Renditions are rendered after the upload on a bounded pool of workers, or when they are first requested if the
+ * pool was too busy. They are kept in an on-disk cache, the least recently used ones being removed when the cache
+ * exceeds its maximum size. A rendition only depends on the content, so its ETag is derived from the checksum.
+ * </p>
+ */
+@Service
+public class DocumentRenderer {
+
+    private final Logger log = LoggerFactory.getLogger(DocumentRenderer.class);
+
+    /**
+     * Version of the rendering, to change when the renditions of a content change.
+     */
+    private static final int VERSION = 1;
+
+    private static final String FORMAT = "jpeg";
+
+    /**
+     * The renditions of a document, by maximum width and height.
+     */
+    public enum Rendition {
+        preview(1600), thumbnail(240);
+
+        private final int maxSize;
+
+        Rendition(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private DocumentStore documentStore;
+
+    private Path cacheRoot;
+
+    private long maxCacheSize;
+
+    private float quality;
+
+    private long timeout;
+
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * Size of the cached renditions, in access order.
+     */
+    private final LinkedHashMap<Path, Long> cache = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long cacheSize;
+
+    private final ConcurrentMap<Path, Future<Optional<Path>>> rendering = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        RelaxedPropertyResolver propertyResolver = new RelaxedPropertyResolver(env, "documents.renditions.");
+        this.cacheRoot = Files.createDirectories(Paths.get(propertyResolver.getProperty("cacheRoot", "target/renditions")));
+        this.maxCacheSize = propertyResolver.getProperty("maxCacheSize", Long.class, 512L * 1024 * 1024);
+        this.quality = propertyResolver.getProperty("quality", Float.class, 0.85f);
+        this.timeout = propertyResolver.getProperty("timeout", Long.class, 30000L);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(propertyResolver.getProperty("threads", Integer.class, 2));
+        executor.setMaxPoolSize(propertyResolver.getProperty("threads", Integer.class, 2));
+        executor.setQueueCapacity(propertyResolver.getProperty("queueCapacity", Integer.class, 100));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("sejour-Renderer-");
+        executor.initialize();
+        loadCache();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Render the renditions of an uploaded content in the background, if it is an image. Renditions the workers
+     * are too busy to render now will be rendered when they are requested.
+     *
+     * @param checksum The checksum of the content
+     * @param contentType The media type of the content
+     */
+    public void renderAll(String checksum, String contentType) {
+        if (!isRenderable(contentType)) {
+            return;
+        }
+        try {
+            for (Rendition rendition : Rendition.values()) {
+                if (!isCached(resolve(checksum, rendition))) {
+                    submit(checksum, rendition);
+                }
+            }
+        } catch (TaskRejectedException e) {
+            log.debug("Workers too busy to render {} now", checksum);
+        }
+    }
+
+    /**
+     * Get a rendition of a content, rendering it if it is not cached
+     *
+     * @param checksum The checksum of the content
+     * @param contentType The media type of the content
+     * @param rendition The rendition
+     * @return The file of the rendition, or empty if the content is not an image
+     * @throws TaskRejectedException if the workers are too busy to render it
+     * @throws IOException if the rendition could not be rendered
+     */
+    public Optional<Path> getRendition(String checksum, String contentType, Rendition rendition) throws IOException {
+        if (!isRenderable(contentType)) {
+            return Optional.empty();
+        }
+        Path file = resolve(checksum, rendition);
+        if (touch(file)) {
+            return Optional.of(file);
+        }
+        try {
+            return submit(checksum, rendition).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not render " + rendition + " of " + checksum, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Rendering " + rendition + " of " + checksum + " timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering " + rendition + " of " + checksum);
+        }
+    }
+
+    /**
+     * Get the strong ETag of a rendition
+     *
+     * @param checksum The checksum of the content
+     * @param rendition The rendition
+     * @return The quoted ETag
+     */
+    public String getETag(String checksum, Rendition rendition) {
+        return "\"" + checksum + "-" + rendition + "-" + VERSION + "\"";
+    }
+
+    private boolean isRenderable(String contentType) {
+        return contentType != null && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * Submit the rendering of a rendition, unless it is cached or already being rendered
+     */
+    private Future<Optional<Path>> submit(String checksum, Rendition rendition) {
+        Path file = resolve(checksum, rendition);
+        FutureTask<Optional<Path>> task = new FutureTask<>(() -> touch(file) ? Optional.of(file) : render(checksum, rendition, file));
+        Future<Optional<Path>> pending = rendering.putIfAbsent(file, task);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    rendering.remove(file, task);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rendering.remove(file, task);
+            throw e;
+        }
+        return task;
+    }
+
+    private Optional<Path> render(String checksum, Rendition rendition, Path file) throws IOException {
+        BufferedImage source = read(checksum, rendition);
+        if (source == null) {
+            return Optional.empty();
+        }
+        double scale = Math.min(1d, (double) rendition.maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Flatten on a white background, JPEG has no transparency
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), checksum, ".tmp");
+        try {
+            write(target, temp);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        added(file, Files.size(file));
+        log.debug("Rendered {} of {} in {}x{}", rendition, checksum, width, height);
+        return Optional.of(file);
+    }
+
+    /**
+     * Read an image, subsampled while it is decoded when it is much larger than the rendition so that a large
+     * scan is never fully decoded in memory
+     */
+    private BufferedImage read(String checksum, Rendition rendition) throws IOException {
+        try (InputStream content = documentStore.open(checksum);
+                ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * rendition.maxSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void write(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(FORMAT).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path resolve(String checksum, Rendition rendition) {
+        if (!checksum.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid checksum " + checksum);
+        }
+        return cacheRoot.resolve(rendition.name()).resolve(checksum.substring(0, 2)).resolve(checksum + "." + FORMAT);
+    }
+
+    private boolean isCached(Path file) {
+        synchronized (cache) {
+            return cache.containsKey(file);
+        }
+    }
+
+    /**
+     * Mark a rendition as used, its modification date keeping the order of use across restarts
+     *
+     * @return true if the rendition is cached
+     */
+    private boolean touch(Path file) {
+        synchronized (cache) {
+            if (cache.get(file) == null) {
+                return false;
+            }
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            // Evicted meanwhile
+            return false;
+        }
+    }
+
+    private void added(Path file, long size) {
+        synchronized (cache) {
+            Long previous = cache.put(file, size);
+            cacheSize += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<Path, Long>> eldest = cache.entrySet().iterator();
+            while (cacheSize > maxCacheSize && eldest.hasNext()) {
+                Map.Entry<Path, Long> entry = eldest.next();
+                if (entry.getKey().equals(file)) {
+                    continue;
+                }
+                eldest.remove();
+                cacheSize -= entry.getValue();
+                try {
+                    Files.deleteIfExists(entry.getKey());
+                } catch (IOException e) {
+                    log.warn("Could not remove cached rendition {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the renditions cached before a restart, the least recently used first
+     */
+    private void loadCache() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(cacheRoot)) {
+            files = walk.filter(file -> file.toString().endsWith("." + FORMAT))
+                    .sorted(Comparator.comparing(DocumentRenderer::lastModified))
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            added(file, Files.size(file));
+        }
+        log.debug("Loaded {} cached renditions, {} bytes", files.size(), cacheSize);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.minint.sief.service.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage of the content of the uploaded documents, addressed by the SHA-256 checksum of the content.
+ * <p>
+ * A content uploaded several times is stored once, whatever the number of documents referencing it.
+ * </p>
+ */
+public interface DocumentStore {
+
+    /**
+     * Check if a content is stored
+     *
+     * @param checksum The checksum of the content
+     * @return true if the content is stored
+     */
+    boolean exists(String checksum);
+
+    /**
+     * Store a content, moving the file into the store. Nothing is stored again when the content already is, the
+     * file is just removed.
+     *
+     * @param checksum The checksum of the content of the file
+     * @param file The file to store, owned by the store after the call
+     * @param contentType The media type of the content
+     * @throws IOException if the content could not be stored
+     */
+    void store(String checksum, Path file, String contentType) throws IOException;
+
+    /**
+     * Open a stored content
+     *
+     * @param checksum The checksum of the content
+     * @return The content, to be closed by the caller
+     * @throws java.io.FileNotFoundException if the content is not stored
+     * @throws IOException if the content could not be opened
+     */
+    InputStream open(String checksum) throws IOException;
+
+    /**
+     * Get the file of a stored content, for the stores on the local file system
+     *
+     * @param checksum The checksum of the content
+     * @return The file of the content, or empty if it is not stored or not in a local file
+     */
+    default Optional<Path> getFile(String checksum) {
+        return Optional.empty();
+    }
+
+    /**
+     * Delete a stored content, if it exists
+     *
+     * @param checksum The checksum of the content
+     * @throws IOException if the content could not be deleted
+     */
+    void delete(String checksum) throws IOException;
+}
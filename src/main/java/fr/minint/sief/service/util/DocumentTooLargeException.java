@@ -0,0 +1,17 @@
+package fr.minint.sief.service.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an uploaded document exceeds the maximum size, as soon as the limit is reached while it is streamed.
+ */
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class DocumentTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DocumentTooLargeException(String name, long maxFileSize) {
+        super("Document " + name + " exceeds the maximum size of " + maxFileSize + " bytes");
+    }
+}
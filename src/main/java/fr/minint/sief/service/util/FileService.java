@@ -1,82 +1,310 @@
 package fr.minint.sief.service.util;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Optional;
 import java.util.UUID;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
-import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.codec.Hex;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import fr.minint.sief.domain.Application;
 import fr.minint.sief.domain.Document;
-import fr.minint.sief.domain.User;
+import fr.minint.sief.domain.DocumentContent;
 import fr.minint.sief.domain.enumeration.DocumentType;
-import fr.minint.sief.repository.ApplicationRepository;
-import fr.minint.sief.repository.UserRepository;
-import fr.minint.sief.security.SecurityUtils;
+import fr.minint.sief.repository.DocumentContentRepository;
 
 /**
  * Service class for managing files.
+ * <p>
+ * Uploads are streamed to a temporary file through a fixed buffer: the size limit is checked and the SHA-256
+ * checksum computed while the content is copied, so a document is never held in memory. The file is then moved
+ * into the document store, where identical contents are stored once.
+ * </p>
  */
 @Service
 public class FileService {
 
     private final Logger log = LoggerFactory.getLogger(FileService.class);
 
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    /**
+     * Url of the stored contents, prefix of the file name of the documents.
+     */
+    public static final String CONTENT_URL = "api/documents/";
+
+    private static final int UPLOAD_ATTEMPTS = 50;
+
+    private static final long UPLOAD_RETRY_MILLIS = 100;
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private DocumentContentRepository documentContentRepository;
+
+    @Inject
+    private DocumentStore documentStore;
+
     @Inject
-    private UserRepository userRepository;
+    private DocumentRenderer documentRenderer;
 
     @Inject
-    private ApplicationRepository applicationRepository;
+    private MongoTemplate mongoTemplate;
 
     /**
-     * Load a file on disk
-     * 
+     * Directory where the biometric photos are stored.
+     */
+    private Path root;
+
+    private long maxFileSize;
+
+    @PostConstruct
+    public void init() throws IOException {
+        RelaxedPropertyResolver propertyResolver = new RelaxedPropertyResolver(env, "documents.");
+        this.root = Paths.get(propertyResolver.getProperty("root", "src/main/webapp/assets/fileUpload"));
+        this.maxFileSize = propertyResolver.getProperty("maxFileSize", Long.class, 5L * 1024 * 1024);
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Load a file in the document store
+     *
      * @param sourceFile The file to load
-     * @param destFilePrefix The prefix of the file name to create
-     * @return an uuid
+     * @param destFileType The type of the document
+     * @return the document of the file
+     * @throws DocumentTooLargeException if the file exceeds the maximum size
      */
     public Optional<Document> loadFile(MultipartFile sourceFile, DocumentType destFileType) {
-    	
+    	if (sourceFile.getSize() > maxFileSize) {
+    		throw new DocumentTooLargeException(sourceFile.getOriginalFilename(), maxFileSize);
+    	}
+
     	Document doc = null;
-    	
-        User currentUser = userRepository.findOneByEmail(SecurityUtils.getCurrentLogin()).get();
-        String uuid = Long.toString(UUID.randomUUID().getLeastSignificantBits(), Character.MAX_RADIX);
-        String destFileName = destFileType + "_" + currentUser.getEmail() + uuid + "." + FilenameUtils.getExtension(sourceFile.getOriginalFilename());
-        
-        try(BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(new File("src/main/webapp/assets/fileUpload", destFileName)))) {
-            stream.write(sourceFile.getBytes());
+        Path tempFile = null;
+
+        try (InputStream in = sourceFile.getInputStream()) {
+            tempFile = Files.createTempFile("upload", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+            long size = Files.copy(new SizeLimitInputStream(new DigestInputStream(in, digest), sourceFile.getOriginalFilename()),
+            		tempFile, StandardCopyOption.REPLACE_EXISTING);
+            String checksum = new String(Hex.encode(digest.digest()));
+            String contentType = sourceFile.getContentType() != null ? sourceFile.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            uploaded(checksum, size, contentType);
+            documentStore.store(checksum, tempFile, contentType);
+            documentRenderer.renderAll(checksum, contentType);
             doc = new Document();
-            doc.setId(uuid);
+            doc.setId(Long.toString(UUID.randomUUID().getLeastSignificantBits(), Character.MAX_RADIX));
             doc.setType(destFileType);
             doc.setName(sourceFile.getOriginalFilename());
-            doc.setFileName("assets/fileUpload/" + destFileName);
-            log.debug( "You successfully uploaded " + destFileName + "!");
-        } catch (Exception e) {
-        	log.debug( "You failed to upload " + destFileName + " => " + e.getMessage());
+            doc.setFileName(CONTENT_URL + checksum);
+            doc.setChecksum(checksum);
+            doc.setSize(size);
+            log.debug( "You successfully uploaded " + sourceFile.getOriginalFilename() + " as " + checksum + "!");
+        } catch (IOException | NoSuchAlgorithmException e) {
+        	log.debug( "You failed to upload " + sourceFile.getOriginalFilename() + " => " + e.getMessage());
+        } finally {
+        	deleteQuietly(tempFile);
         }
-        
+
         return Optional.ofNullable(doc);
 	}
 
-    public void loadPhoto(String sourceUri, String destFilePrefix, String idApplication) {
-    	
-        Application application = applicationRepository.findOne(idApplication);
+    /**
+     * Record the upload of a content, before it is stored so that it is not removed as unreferenced meanwhile.
+     * <p>
+     * A content being removed doesn't match the upsert, whose insert then fails on its id: the upload waits for the
+     * removal to end, and stores the content again. The mark of a removal that didn't end within its lease is taken
+     * over.
+     * </p>
+     *
+     * @throws IOException if the content is still being removed after the last attempt
+     */
+    private void uploaded(String checksum, long size, String contentType) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            DateTime now = DateTime.now();
+            try {
+                mongoTemplate.upsert(query(where("checksum").is(checksum).orOperator(
+                                where("removalDate").exists(false),
+                                where("removalDate").lt(now.minus(DocumentContent.REMOVAL_LEASE_MILLIS)))),
+                        new Update().setOnInsert("size", size)
+                                .setOnInsert("contentType", contentType)
+                                .setOnInsert("creationDate", now)
+                                .set("lastUploadDate", now)
+                                .unset("removalDate"),
+                        DocumentContent.class);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt >= UPLOAD_ATTEMPTS) {
+                    throw new IOException("Content " + checksum + " is still being removed", e);
+                }
+                try {
+                    Thread.sleep(UPLOAD_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while content " + checksum + " is being removed", ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a stored content
+     *
+     * @param checksum The checksum of the content
+     * @return The content, or empty if it is not stored
+     */
+    public Optional<DocumentContent> getContent(String checksum) {
+        return Optional.ofNullable(documentContentRepository.findOne(checksum));
+    }
+
+    /**
+     * Copy a range of a stored content. A content on the local file system is transferred from its file channel
+     * without going through the heap.
+     *
+     * @param checksum The checksum of the content
+     * @param position The position of the first byte to copy
+     * @param count The number of bytes to copy
+     * @param out The stream to copy to, left open
+     * @throws IOException if the content could not be copied
+     */
+    public void copyContent(String checksum, long position, long count, OutputStream out) throws IOException {
+        Optional<Path> file = documentStore.getFile(checksum);
+        if (file.isPresent()) {
+            try (FileChannel channel = FileChannel.open(file.get(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long copied = 0;
+                while (copied < count) {
+                    long transferred = channel.transferTo(position + copied, count - copied, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    copied += transferred;
+                }
+            }
+        } else {
+            try (InputStream in = documentStore.open(checksum)) {
+                IOUtils.copyLarge(in, out, position, count);
+            }
+        }
+    }
+
+    /**
+     * Load a base64 encoded biometric photo on disk, decoding it while it is streamed
+     *
+     * @param sourceUri The base64 encoded photo
+     * @param destFilePrefix The type of the photo, prefix of its file name
+     * @param idApplication The application of the photo
+     * @return true if the photo was loaded
+     */
+    public boolean loadBase64Photo(InputStream sourceUri, String destFilePrefix, String idApplication) {
+        return loadPhoto(Base64.getDecoder().wrap(sourceUri), destFilePrefix, idApplication);
+    }
+
+    /**
+     * Load a biometric photo on disk, streaming it through a fixed buffer
+     *
+     * @param source The photo
+     * @param destFilePrefix The type of the photo, prefix of its file name
+     * @param idApplication The application of the photo
+     * @return true if the photo was loaded
+     * @throws DocumentTooLargeException if the photo exceeds the maximum size
+     */
+    public boolean loadPhoto(InputStream source, String destFilePrefix, String idApplication) {
+        if (!destFilePrefix.matches("\\w+")) {
+            log.debug("You failed to upload a photo of invalid type " + destFilePrefix);
+            return false;
+        }
+        Query applicationEmail = query(where("id").is(idApplication));
+        applicationEmail.fields().include("email");
+        Application application = mongoTemplate.findOne(applicationEmail, Application.class);
+        if (application == null) {
+            log.debug("You failed to upload a photo of unknown application " + idApplication);
+            return false;
+        }
         String destFileName = destFilePrefix + "_" + application.getEmail() + ".jpeg";
-        
-        try(BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(new File("src/main/webapp/assets/fileUpload", destFileName)))) {
-            stream.write(Base64.getDecoder().decode(sourceUri));
+        Path tempFile = null;
+
+        try {
+            tempFile = Files.createTempFile(root, destFilePrefix, ".tmp");
+            Files.copy(new SizeLimitInputStream(source, destFileName), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, root.resolve(destFileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
             log.debug( "You successfully uploaded " + destFileName + "!");
-        } catch (Exception e) {
+            return true;
+        } catch (IOException e) {
         	log.debug( "You failed to upload " + destFileName + " => " + e.getMessage());
+        	return false;
+        } finally {
+        	deleteQuietly(tempFile);
         }
 	}
+
+    private void deleteQuietly(Path file) {
+    	if (file != null) {
+    		try {
+    			Files.deleteIfExists(file);
+    		} catch (IOException e) {
+    			log.warn("Could not delete temporary file {}: {}", file, e.getMessage());
+    		}
+    	}
+    }
+
+    /**
+     * Stream failing as soon as more than the maximum file size is read, the size of a multipart part or a request
+     * being only a hint from the client.
+     */
+    private class SizeLimitInputStream extends ProxyInputStream {
+
+    	private final String name;
+
+    	private long count;
+
+		public SizeLimitInputStream(InputStream in, String name) {
+			super(in);
+			this.name = name;
+		}
+
+		@Override
+		protected void afterRead(int n) {
+			if (n > 0) {
+				count += n;
+				if (count > maxFileSize) {
+					throw new DocumentTooLargeException(name, maxFileSize);
+				}
+			}
+		}
+    }
 }
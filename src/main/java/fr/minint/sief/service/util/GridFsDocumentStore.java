@@ -0,0 +1,66 @@
+package fr.minint.sief.service.util;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+/**
+ * Document store in GridFS, on the connection of the application database.
+ * <p>
+ * The file name of a content in GridFS is its checksum. Two identical contents stored at the same time may give
+ * two GridFS files, they are interchangeable and deleted together.
+ * </p>
+ */
+public class GridFsDocumentStore implements DocumentStore {
+
+    private final Logger log = LoggerFactory.getLogger(GridFsDocumentStore.class);
+
+    private final GridFsTemplate gridFsTemplate;
+
+    public GridFsDocumentStore(GridFsTemplate gridFsTemplate) {
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    @Override
+    public boolean exists(String checksum) {
+        return gridFsTemplate.findOne(query(whereFilename().is(checksum))) != null;
+    }
+
+    @Override
+    public void store(String checksum, Path file, String contentType) throws IOException {
+        try {
+            if (!exists(checksum)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    gridFsTemplate.store(in, checksum, contentType);
+                }
+                log.debug("Stored document {}", checksum);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public InputStream open(String checksum) throws IOException {
+        GridFsResource resource = gridFsTemplate.getResource(checksum);
+        if (resource == null) {
+            throw new FileNotFoundException("No document " + checksum);
+        }
+        return resource.getInputStream();
+    }
+
+    @Override
+    public void delete(String checksum) {
+        gridFsTemplate.delete(query(whereFilename().is(checksum)));
+    }
+}
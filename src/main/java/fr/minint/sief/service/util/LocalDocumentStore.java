@@ -0,0 +1,100 @@
+package fr.minint.sief.service.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Document store on the local file system.
+ * <p>
+ * A content is stored in a file named by its checksum, under two levels of directories named by the first
+ * characters of the checksum (<code>ab/cd/abcd...</code>) so that no directory grows too large. Files are moved
+ * atomically into place, so a content is either fully stored or not visible at all.
+ * </p>
+ */
+public class LocalDocumentStore implements DocumentStore {
+
+    private final Logger log = LoggerFactory.getLogger(LocalDocumentStore.class);
+
+    private final Path root;
+
+    public LocalDocumentStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root);
+    }
+
+    @Override
+    public boolean exists(String checksum) {
+        return Files.exists(resolve(checksum));
+    }
+
+    @Override
+    public void store(String checksum, Path file, String contentType) throws IOException {
+        Path target = resolve(checksum);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // The file is on another file system, copy it next to the target before renaming it
+                Path temp = Files.createTempFile(target.getParent(), checksum, ".tmp");
+                try {
+                    Files.move(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            log.debug("Stored document {}", checksum);
+        } catch (FileAlreadyExistsException e) {
+            // The same content was stored concurrently
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public InputStream open(String checksum) throws IOException {
+        try {
+            return Files.newInputStream(resolve(checksum));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("No document " + checksum);
+        }
+    }
+
+    @Override
+    public Optional<Path> getFile(String checksum) {
+        Path file = resolve(checksum);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String checksum) throws IOException {
+        Files.deleteIfExists(resolve(checksum));
+    }
+
+    /**
+     * Get the file of a content, which may not exist
+     *
+     * @param checksum The checksum of the content
+     * @return The file of the content
+     */
+    public Path resolve(String checksum) {
+        if (!checksum.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid checksum " + checksum);
+        }
+        return root.resolve(checksum.substring(0, 2)).resolve(checksum.substring(2, 4)).resolve(checksum);
+    }
+}
@@ -0,0 +1,248 @@
+package fr.minint.sief.service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Short-lived holds of appointment slots, kept in memory until they are confirmed by a reservation or expire.
+ * <p>
+ * A user holds at most one place, and a slot cannot be held more than its free places, so a slot picked by a user
+ * is still free when the appointment is confirmed. The held slots are cleared from the index of the free slots
+ * as soon as all their places are held. Holds expire on a timer wheel: they are put in the bucket of the tick of
+ * their deadline, and each tick only goes through the holds of its bucket.
+ * </p>
+ */
+public class SlotHolds {
+
+    private final SlotIndex index;
+
+    private final long leaseMillis;
+
+    private final long tickMillis;
+
+    private final List<Queue<Hold>> wheel;
+
+    /** Next tick to expire */
+    private volatile long tick;
+
+    private final ConcurrentMap<String, Hold> holdsByUser = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, HeldSlot> heldSlots = new ConcurrentHashMap<>();
+
+    public SlotHolds(SlotIndex index, long leaseMillis, long tickMillis) {
+        this.index = index;
+        this.leaseMillis = leaseMillis;
+        this.tickMillis = tickMillis;
+        int buckets = (int) (leaseMillis / tickMillis) + 2;
+        this.wheel = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.tick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Hold a place in a slot for a user, releasing the place the user held before
+     *
+     * @param user The login of the user
+     * @param site The site of the slot
+     * @param day The day of the slot
+     * @param slot The index of the slot in the day
+     * @param free The number of places left in the slot
+     * @return true if a place was held, false if all the free places are held
+     */
+    public boolean hold(String user, String site, LocalDate day, int slot, int free) {
+        Hold previous = holdsByUser.remove(user);
+        if (previous != null) {
+            release(previous);
+        }
+        boolean[] held = {false};
+        heldSlots.compute(getKey(site, day, slot), (key, heldSlot) -> {
+            HeldSlot current = heldSlot != null ? heldSlot : new HeldSlot(site, day, slot);
+            current.free = free;
+            if (current.holds < current.free) {
+                current.holds++;
+                held[0] = true;
+            }
+            index.set(site, day, slot, current.free > current.holds);
+            return current.holds > 0 ? current : null;
+        });
+        if (!held[0]) {
+            return false;
+        }
+        Hold hold = new Hold(user, site, day, slot, System.currentTimeMillis() + leaseMillis);
+        Hold replaced = holdsByUser.put(user, hold);
+        if (replaced != null) {
+            release(replaced);
+        }
+        wheel.get((int) (getTick(hold.deadline) % wheel.size())).add(hold);
+        return true;
+    }
+
+    /**
+     * Take the place a user holds in a slot, for it to be reserved
+     *
+     * @param user The login of the user
+     * @param site The site of the slot
+     * @param day The day of the slot
+     * @param slot The index of the slot in the day
+     * @return true if the user held a place in this slot
+     */
+    public boolean take(String user, String site, LocalDate day, int slot) {
+        Hold hold = holdsByUser.get(user);
+        if (hold == null || !hold.isIn(site, day, slot) || !holdsByUser.remove(user, hold)) {
+            return false;
+        }
+        return release(hold);
+    }
+
+    /**
+     * Get the number of places of a slot held by users
+     *
+     * @param site The site of the slot
+     * @param day The day of the slot
+     * @param slot The index of the slot in the day
+     * @return The number of held places
+     */
+    public int getHolds(String site, LocalDate day, int slot) {
+        HeldSlot heldSlot = heldSlots.get(getKey(site, day, slot));
+        return heldSlot != null ? heldSlot.holds : 0;
+    }
+
+    /**
+     * Update the free places of a slot after a reservation, marking it free in the index if some are not held
+     *
+     * @param site The site of the slot
+     * @param day The day of the slot
+     * @param slot The index of the slot in the day
+     * @param free The number of places left in the slot
+     */
+    public void update(String site, LocalDate day, int slot, int free) {
+        HeldSlot heldSlot = heldSlots.computeIfPresent(getKey(site, day, slot), (key, current) -> {
+            current.free = free;
+            index.set(site, day, slot, current.free > current.holds);
+            return current;
+        });
+        if (heldSlot == null) {
+            index.set(site, day, slot, free > 0);
+        }
+    }
+
+    /**
+     * Clear the slots whose free places are all held from the index, after it was rebuilt
+     */
+    public void apply() {
+        heldSlots.values().forEach(heldSlot ->
+                index.set(heldSlot.site, heldSlot.day, heldSlot.slot, heldSlot.free > heldSlot.holds));
+    }
+
+    /**
+     * Release the holds whose deadline is passed, going through the buckets of the ticks elapsed since last time
+     * <p>
+     * This returns without locking when no tick has elapsed, so it can be called before each hold and reservation.
+     * </p>
+     *
+     * @param now The current time
+     */
+    public void expire(long now) {
+        if (now / tickMillis >= tick) {
+            expireTicks(now);
+        }
+    }
+
+    private synchronized void expireTicks(long now) {
+        for (long last = now / tickMillis; tick <= last; tick++) {
+            Queue<Hold> bucket = wheel.get((int) (tick % wheel.size()));
+            List<Hold> due = new ArrayList<>();
+            for (Hold hold = bucket.poll(); hold != null; hold = bucket.poll()) {
+                due.add(hold);
+            }
+            for (Hold hold : due) {
+                if (hold.deadline > now) {
+                    bucket.add(hold);
+                } else if (release(hold)) {
+                    holdsByUser.remove(hold.user, hold);
+                }
+            }
+        }
+    }
+
+    private boolean release(Hold hold) {
+        if (!hold.active.compareAndSet(true, false)) {
+            return false;
+        }
+        heldSlots.computeIfPresent(getKey(hold.site, hold.day, hold.slot), (key, heldSlot) -> {
+            heldSlot.holds--;
+            index.set(hold.site, hold.day, hold.slot, heldSlot.free > heldSlot.holds);
+            return heldSlot.holds > 0 ? heldSlot : null;
+        });
+        return true;
+    }
+
+    private long getTick(long time) {
+        return (time + tickMillis - 1) / tickMillis;
+    }
+
+    private static String getKey(String site, LocalDate day, int slot) {
+        return site + "/" + day + "/" + slot;
+    }
+
+    /**
+     * The places held in a slot, and the places left when it was last read
+     */
+    private static class HeldSlot {
+
+        private final String site;
+
+        private final LocalDate day;
+
+        private final int slot;
+
+        private volatile int free;
+
+        private volatile int holds;
+
+        HeldSlot(String site, LocalDate day, int slot) {
+            this.site = site;
+            this.day = day;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * A place held by a user, active until it is taken, replaced or expired
+     */
+    private static class Hold {
+
+        private final String user;
+
+        private final String site;
+
+        private final LocalDate day;
+
+        private final int slot;
+
+        private final long deadline;
+
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        Hold(String user, String site, LocalDate day, int slot, long deadline) {
+            this.user = user;
+            this.site = site;
+            this.day = day;
+            this.slot = slot;
+            this.deadline = deadline;
+        }
+
+        boolean isIn(String site, LocalDate day, int slot) {
+            return this.site.equals(site) && this.day.equals(day) && this.slot == slot;
+        }
+    }
+}
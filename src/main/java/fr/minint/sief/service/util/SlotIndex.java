@@ -0,0 +1,103 @@
+package fr.minint.sief.service.util;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.joda.time.LocalDate;
+
+import fr.minint.sief.domain.RdvCalendar;
+
+/**
+ * In-memory index of the free appointment slots: one bitmap per site and day, with a bit set for each slot that
+ * has places left.
+ * <p>
+ * The index is rebuilt from the calendars and each bit is updated as the slots are reserved and released, so the
+ * free slots are listed without querying the database. A slot booked by another instance stays free in the index
+ * until the next rebuild, the reservation itself being always checked against the calendar.
+ * </p>
+ */
+public class SlotIndex {
+
+    private static final int WORDS = (RdvCalendar.SLOTS_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private volatile Map<String, ConcurrentNavigableMap<LocalDate, AtomicLongArray>> sites = new ConcurrentHashMap<>();
+
+    /**
+     * Replace the whole index with the free slots of calendars
+     *
+     * @param calendars The calendars, with their site, day and free places
+     */
+    public void rebuild(Iterator<RdvCalendar> calendars) {
+        Map<String, ConcurrentNavigableMap<LocalDate, AtomicLongArray>> rebuilt = new ConcurrentHashMap<>();
+        while (calendars.hasNext()) {
+            RdvCalendar calendar = calendars.next();
+            AtomicLongArray bits = new AtomicLongArray(WORDS);
+            for (int slot = 0; slot < calendar.getFree().size(); slot++) {
+                if (calendar.getFree().get(slot) > 0) {
+                    bits.set(slot / Long.SIZE, bits.get(slot / Long.SIZE) | 1L << slot);
+                }
+            }
+            rebuilt.computeIfAbsent(calendar.getSite(), site -> new ConcurrentSkipListMap<>())
+                    .put(new LocalDate(calendar.getDay()), bits);
+        }
+        this.sites = rebuilt;
+    }
+
+    /**
+     * Mark a slot as free or full
+     *
+     * @param site The site of the slot
+     * @param day The day of the slot
+     * @param slot The index of the slot in the day
+     * @param free true if the slot has places left
+     */
+    public void set(String site, LocalDate day, int slot, boolean free) {
+        ConcurrentNavigableMap<LocalDate, AtomicLongArray> days = sites.get(site);
+        AtomicLongArray bits = days != null ? days.get(day) : null;
+        if (bits == null) {
+            return;
+        }
+        int word = slot / Long.SIZE;
+        long mask = 1L << slot;
+        long current;
+        do {
+            current = bits.get(word);
+        } while (!bits.compareAndSet(word, current, free ? current | mask : current & ~mask));
+    }
+
+    /**
+     * Get the days of a site with free slots
+     *
+     * @param site The site
+     * @param from The first day
+     * @return The free slots, by day
+     */
+    public SortedMap<LocalDate, BitSet> getFreeSlots(String site, LocalDate from) {
+        ConcurrentNavigableMap<LocalDate, AtomicLongArray> days = sites.get(site);
+        if (days == null) {
+            return Collections.emptySortedMap();
+        }
+        SortedMap<LocalDate, BitSet> freeSlots = new TreeMap<>();
+        NavigableMap<LocalDate, AtomicLongArray> tail = days.tailMap(from, true);
+        tail.forEach((day, bits) -> {
+            long[] words = new long[WORDS];
+            for (int word = 0; word < WORDS; word++) {
+                words[word] = bits.get(word);
+            }
+            BitSet free = BitSet.valueOf(words);
+            if (!free.isEmpty()) {
+                freeSlots.put(day, free);
+            }
+        });
+        return freeSlots;
+    }
+}
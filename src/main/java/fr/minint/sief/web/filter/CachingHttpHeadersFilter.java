@@ -1,32 +1,39 @@
 package fr.minint.sief.web.filter;
 
+import org.apache.commons.lang.StringUtils;
 import org.springframework.core.env.Environment;
 
 import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 /**
- * This filter is used in production, to put HTTP cache headers with a long (1 month) expiration time.
+ * This filter is used in production, to put HTTP cache headers on the static resources generated by "grunt build".
+ * <p>
+ * The ETag of a resource is the hash of its content from the static asset manifest, so it only changes when the
+ * content changes and not on each deployment. Fingerprinted resources are cached for a long (1 month) time as
+ * immutable, the other ones are revalidated on each use, which costs a 304 when they did not change.
  * </p>
  */
 public class CachingHttpHeadersFilter implements Filter {
 
-    // We consider the last modified date is the start up time of the server
-    private final static long LAST_MODIFIED = System.currentTimeMillis();
-
-    private long CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(31L);
+    private long CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toSeconds(31L);
 
     private Environment env;
 
-    public CachingHttpHeadersFilter(Environment env) {
+    private final StaticAssetManifest manifest;
+
+    public CachingHttpHeadersFilter(Environment env, StaticAssetManifest manifest) {
            this.env = env;
+           this.manifest = manifest;
     }
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(env.getProperty("http.cache.timeToLiveInDays", Long.class, 31L));
+        CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toSeconds(env.getProperty("http.cache.timeToLiveInDays", Long.class, 31L));
     }
 
     @Override
@@ -36,17 +43,86 @@ public class CachingHttpHeadersFilter implements Filter {
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        httpResponse.setHeader("Cache-Control", "max-age=" + CACHE_TIME_TO_LIVE + ", public");
-        httpResponse.setHeader("Pragma", "cache");
+        String path = StringUtils.substringAfter(httpRequest.getRequestURI(), httpRequest.getContextPath());
+        if (StringUtils.equals("/", path)) {
+            path = "/index.html";
+        }
+        // The representation served is the compressed sibling when there is one
+        String[] encoding = manifest.getEncoding(path, httpRequest);
+        String hash = manifest.getHash(encoding != null ? path + encoding[1] : path);
+        if (hash == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String eTag = "\"" + hash + "\"";
+        httpResponse.setHeader("ETag", eTag);
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+        if (manifest.isFingerprinted(path)) {
+            httpResponse.setHeader("Cache-Control", "max-age=" + CACHE_TIME_TO_LIVE + ", public, immutable");
+            // Setting Expires header, for proxy caching
+            httpResponse.setDateHeader("Expires", TimeUnit.SECONDS.toMillis(CACHE_TIME_TO_LIVE) + System.currentTimeMillis());
+        } else {
+            httpResponse.setHeader("Cache-Control", "no-cache, public");
+        }
+
+        if (matches(httpRequest.getHeader("If-None-Match"), eTag)) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // The container would replace the ETag with one based on the modification date of the file
+        chain.doFilter(request, new HttpServletResponseWrapper(httpResponse) {
+            @Override
+            public void setHeader(String name, String value) {
+                if (!isValidator(name)) {
+                    super.setHeader(name, value);
+                }
+            }
 
-        // Setting Expires header, for proxy caching
-        httpResponse.setDateHeader("Expires", CACHE_TIME_TO_LIVE + System.currentTimeMillis());
+            @Override
+            public void addHeader(String name, String value) {
+                if (!isValidator(name)) {
+                    super.addHeader(name, value);
+                }
+            }
 
-        // Setting the Last-Modified header, for browser caching
-        httpResponse.setDateHeader("Last-Modified", LAST_MODIFIED);
+            @Override
+            public void setDateHeader(String name, long date) {
+                if (!isValidator(name)) {
+                    super.setDateHeader(name, date);
+                }
+            }
+
+            @Override
+            public void addDateHeader(String name, long date) {
+                if (!isValidator(name)) {
+                    super.addDateHeader(name, date);
+                }
+            }
+        });
+    }
+
+    private static boolean isValidator(String name) {
+        return "ETag".equalsIgnoreCase(name) || "Last-Modified".equalsIgnoreCase(name);
+    }
 
-        chain.doFilter(request, response);
+    /**
+     * Check if an If-None-Match header matches an ETag
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
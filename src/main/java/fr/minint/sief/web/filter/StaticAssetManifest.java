@@ -0,0 +1,119 @@
+package fr.minint.sief.web.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.codec.Hex;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Manifest of the static resources generated by "grunt build", mapping each file of the "dist" directory to the
+ * SHA-256 hash of its content.
+ * <p>
+ * It is built once at startup, the resources of a deployment never changing. A file whose name starts with the
+ * hash prefix added by the "rev" task is fingerprinted: its content never changes for its name.
+ * </p>
+ */
+public class StaticAssetManifest {
+
+    private final Logger log = LoggerFactory.getLogger(StaticAssetManifest.class);
+
+    public static final String ROOT = "/dist";
+
+    /**
+     * Encodings of the compressed siblings of a resource, by order of preference, with their extension.
+     */
+    private static final String[][] ENCODINGS = {{"br", ".br"}, {"gzip", ".gz"}};
+
+    /**
+     * Name of a file prefixed by the "rev" task with the hash of its content.
+     */
+    private static final Pattern FINGERPRINTED = Pattern.compile("^[0-9a-f]{8}\\.[^/]+$");
+
+    private final Map<String, String> hashes;
+
+    public StaticAssetManifest(ServletContext servletContext) {
+        long start = System.currentTimeMillis();
+        Map<String, String> manifest = new HashMap<>();
+        try {
+            add(servletContext, ROOT + "/", MessageDigest.getInstance("SHA-256"), manifest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.hashes = Collections.unmodifiableMap(manifest);
+        log.debug("Hashed {} static resources in {} ms", hashes.size(), System.currentTimeMillis() - start);
+    }
+
+    private void add(ServletContext servletContext, String directory, MessageDigest digest, Map<String, String> manifest) {
+        Set<String> paths = servletContext.getResourcePaths(directory);
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            if (path.endsWith("/")) {
+                add(servletContext, path, digest, manifest);
+                continue;
+            }
+            try (InputStream in = new DigestInputStream(servletContext.getResourceAsStream(path), digest)) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) >= 0) {
+                    // Digest the content
+                }
+                manifest.put(path.substring(ROOT.length()), new String(Hex.encode(digest.digest())));
+            } catch (IOException e) {
+                log.warn("Could not hash static resource {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the hash of the content of a resource
+     *
+     * @param path The path of the resource, relative to the "dist" directory
+     * @return The hash, or null if there is no such resource
+     */
+    public String getHash(String path) {
+        return hashes.get(path);
+    }
+
+    /**
+     * Check if a resource is fingerprinted, so that it can be cached forever
+     *
+     * @param path The path of the resource, relative to the "dist" directory
+     * @return true if the name of the resource contains the hash of its content
+     */
+    public boolean isFingerprinted(String path) {
+        return FINGERPRINTED.matcher(path.substring(path.lastIndexOf('/') + 1)).matches();
+    }
+
+    /**
+     * Choose the compressed sibling of a resource to serve to a client
+     *
+     * @param path The path of the resource, relative to the "dist" directory
+     * @param request The request of the client
+     * @return The encoding and the extension of the compressed sibling, or null to serve the resource itself
+     */
+    public String[] getEncoding(String path, HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null || request.getHeader("Range") != null) {
+            return null;
+        }
+        for (String[] encoding : ENCODINGS) {
+            if (acceptEncoding.contains(encoding[0]) && hashes.containsKey(path + encoding[1])) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
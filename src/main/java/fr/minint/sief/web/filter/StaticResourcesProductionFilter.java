@@ -5,6 +5,8 @@ import org.apache.commons.lang.StringUtils;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
 
 /**
@@ -14,12 +16,24 @@ import java.io.IOException;
  * It is configured to serve resources from the "dist" directory, which is the Grunt
  * destination directory.
  * </p>
+ * <p>
+ * When the client accepts it, a resource is served from its sibling compressed by the build, with brotli
+ * (".br") or gzip (".gz"), so that it is not compressed on each request.
+ * </p>
  */
 public class StaticResourcesProductionFilter implements Filter {
 
+    private final StaticAssetManifest manifest;
+
+    private ServletContext servletContext;
+
+    public StaticResourcesProductionFilter(StaticAssetManifest manifest) {
+        this.manifest = manifest;
+    }
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        // Nothing to initialize
+        this.servletContext = filterConfig.getServletContext();
     }
 
     @Override
@@ -36,7 +50,28 @@ public class StaticResourcesProductionFilter implements Filter {
         if (StringUtils.equals("/", requestURI)) {
             requestURI = "/index.html";
         }
-        String newURI = "/dist" + requestURI;
+        String newURI = StaticAssetManifest.ROOT + requestURI;
+        String[] encoding = manifest.getEncoding(requestURI, httpRequest);
+        if (encoding != null) {
+            forwardCompressed(request, (HttpServletResponse) response, newURI, encoding);
+            return;
+        }
         request.getRequestDispatcher(newURI).forward(request, response);
     }
+
+    private void forwardCompressed(ServletRequest request, HttpServletResponse response, String uri, String[] encoding)
+            throws IOException, ServletException {
+        response.setHeader("Content-Encoding", encoding[0]);
+        response.addHeader("Vary", "Accept-Encoding");
+        String contentType = servletContext.getMimeType(uri);
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        request.getRequestDispatcher(uri + encoding[1]).forward(request, new HttpServletResponseWrapper(response) {
+            @Override
+            public void setContentType(String type) {
+                // The type is the one of the uncompressed resource, not of the compressed file
+            }
+        });
+    }
 }
@@ -6,17 +6,36 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
-
+import java.util.zip.Deflater;
+
+/**
+ * Filter compressing the responses with gzip while they are written.
+ * <p>
+ * The <code>minSize</code> init parameter is the size under which a response is not compressed, and the
+ * <code>level</code> init parameter the compression level, from 1 (fastest) to 9 (smallest).
+ * </p>
+ */
 public class GZipServletFilter implements Filter {
 
     private Logger log = LoggerFactory.getLogger(GZipServletFilter.class);
 
+    public static final String MIN_SIZE = "minSize";
+
+    public static final String LEVEL = "level";
+
+    private int minSize = 1024;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        // Nothing to initialize
+        if (filterConfig.getInitParameter(MIN_SIZE) != null) {
+            minSize = Integer.parseInt(filterConfig.getInitParameter(MIN_SIZE));
+        }
+        if (filterConfig.getInitParameter(LEVEL) != null) {
+            level = Integer.parseInt(filterConfig.getInitParameter(LEVEL));
+        }
     }
 
     @Override
@@ -35,51 +54,12 @@ public class GZipServletFilter implements Filter {
             if (log.isTraceEnabled()) {
                 log.trace("{} Written with gzip compression", httpRequest.getRequestURL());
             }
+            httpResponse.addHeader("Vary", "Accept-Encoding");
 
-            // Create a gzip stream
-            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
-            final GZIPOutputStream gzout = new GZIPOutputStream(compressed);
-
-            // Handle the request
-            final GZipServletResponseWrapper wrapper = new GZipServletResponseWrapper(httpResponse, gzout);
-            wrapper.setDisableFlushBuffer(true);
+            // Handle the request, the response is compressed while it is written
+            final GZipServletResponseWrapper wrapper = new GZipServletResponseWrapper(httpResponse, minSize, level);
             chain.doFilter(request, wrapper);
-            wrapper.flush();
-
-            gzout.close();
-
-            // double check one more time before writing out
-            // repsonse might have been committed due to error
-            if (response.isCommitted()) {
-                return;
-            }
-
-            // return on these special cases when content is empty or unchanged
-            switch (wrapper.getStatus()) {
-                case HttpServletResponse.SC_NO_CONTENT:
-                case HttpServletResponse.SC_RESET_CONTENT:
-                case HttpServletResponse.SC_NOT_MODIFIED:
-                    return;
-                default:
-            }
-
-            // Saneness checks
-            byte[] compressedBytes = compressed.toByteArray();
-            boolean shouldGzippedBodyBeZero = GZipResponseUtil.shouldGzippedBodyBeZero(compressedBytes, httpRequest);
-            boolean shouldBodyBeZero = GZipResponseUtil.shouldBodyBeZero(httpRequest, wrapper.getStatus());
-            if (shouldGzippedBodyBeZero || shouldBodyBeZero) {
-                // No reason to add GZIP headers or write body if no content was written or status code specifies no
-                // content
-                response.setContentLength(0);
-                return;
-            }
-
-            // Write the zipped body
-            GZipResponseUtil.addGzipHeader(httpResponse);
-
-            response.setContentLength(compressedBytes.length);
-
-            response.getOutputStream().write(compressedBytes);
+            wrapper.finish();
 
         } else {
             // Client does not accept zipped content - don't bother zipping
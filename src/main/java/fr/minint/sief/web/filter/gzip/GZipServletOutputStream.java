@@ -4,39 +4,100 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Output stream keeping the beginning of the response until it exceeds the minimum size, then streaming it
+ * compressed or not as decided by the response.
+ */
 class GZipServletOutputStream extends ServletOutputStream {
+
+    private final GZipServletResponseWrapper response;
+
+    private final byte[] buffer;
+
+    private int count;
+
+    /**
+     * The stream the response is written to, null until it is decided whether it is compressed.
+     */
     private OutputStream stream;
 
-    public GZipServletOutputStream(OutputStream output)
-            throws IOException {
+    public GZipServletOutputStream(GZipServletResponseWrapper response, int minSize) {
         super();
-        this.stream = output;
+        this.response = response;
+        this.buffer = new byte[minSize];
     }
 
     @Override
-    public void close() throws IOException {
-        this.stream.close();
+    public void write(int b) throws IOException {
+        if (stream == null) {
+            if (count < buffer.length) {
+                buffer[count++] = (byte) b;
+                return;
+            }
+            open(true);
+        }
+        stream.write(b);
     }
 
     @Override
-    public void flush() throws IOException {
-        this.stream.flush();
+    public void write(byte b[], int off, int len) throws IOException {
+        if (stream == null) {
+            if (count + len <= buffer.length) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+            open(true);
+        }
+        stream.write(b, off, len);
     }
 
+    /**
+     * Flush the stream once decided, a smaller response being kept until it is finished.
+     */
     @Override
-    public void write(byte b[]) throws IOException {
-        this.stream.write(b);
+    public void flush() throws IOException {
+        if (stream != null) {
+            stream.flush();
+        }
     }
 
-    @Override
-    public void write(byte b[], int off, int len) throws IOException {
-        this.stream.write(b, off, len);
+    /**
+     * Write the end of the response, without closing the stream of the wrapped response.
+     */
+    public void finish() throws IOException {
+        if (stream == null) {
+            open(false);
+        }
+        if (stream instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) stream).finish();
+        }
+        stream.flush();
     }
 
     @Override
-    public void write(int b) throws IOException {
-        this.stream.write(b);
+    public void close() throws IOException {
+        finish();
+        stream.close();
+    }
+
+    public boolean isOpen() {
+        return stream != null;
+    }
+
+    /**
+     * Discard the beginning of the response, before it is written.
+     */
+    public void discard() {
+        count = 0;
+    }
+
+    private void open(boolean exceedsMinSize) throws IOException {
+        stream = response.open(exceedsMinSize);
+        stream.write(buffer, 0, count);
+        count = 0;
     }
 
     @Override
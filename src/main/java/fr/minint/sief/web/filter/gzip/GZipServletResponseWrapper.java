@@ -4,37 +4,94 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * Response compressed while it is written, once it exceeds the minimum size.
+ * <p>
+ * Responses smaller than the minimum size, of an already compressed type, with a range or an encoding are
+ * written as they are. The content length is kept until it is known whether it applies.
+ * </p>
+ */
 class GZipServletResponseWrapper extends HttpServletResponseWrapper {
 
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int minSize;
+
+    private final int level;
+
     private GZipServletOutputStream gzipOutputStream = null;
     private PrintWriter printWriter = null;
-    private boolean disableFlushBuffer = false;
+    private long contentLength = -1;
 
-    public GZipServletResponseWrapper(HttpServletResponse response, GZIPOutputStream gzout)
-            throws IOException {
+    public GZipServletResponseWrapper(HttpServletResponse response, int minSize, int level) {
         super(response);
-        gzipOutputStream = new GZipServletOutputStream(gzout);
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    /**
+     * Open the stream of the wrapped response, compressed if the response is large enough and compressible.
+     *
+     * @param exceedsMinSize true if the response exceeds the minimum size
+     * @return the stream to write the response to
+     */
+    OutputStream open(boolean exceedsMinSize) throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        if (exceedsMinSize && isCompressible(response) && addGzipHeader(response)) {
+            final int compressionLevel = level;
+            return new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
+        }
+        if (contentLength >= 0) {
+            response.setContentLengthLong(contentLength);
+        }
+        return response.getOutputStream();
+    }
+
+    private boolean addGzipHeader(HttpServletResponse response) {
+        try {
+            GZipResponseUtil.addGzipHeader(response);
+            return true;
+        } catch (GzipResponseHeadersNotModifiableException e) {
+            // Included response, written as it is
+            return false;
+        }
     }
 
-    public void close() throws IOException {
+    private boolean isCompressible(HttpServletResponse response) {
+        return !response.isCommitted()
+                && response.getStatus() != HttpServletResponse.SC_PARTIAL_CONTENT
+                && !response.containsHeader("Content-Encoding")
+                && !response.containsHeader("Content-Range")
+                && !GZipResponseUtil.isCompressedType(response.getContentType());
+    }
 
-        //PrintWriter.close does not throw exceptions. Thus, the call does not need
-        //be inside a try-catch block.
+    /**
+     * Write the end of the response.
+     */
+    public void finish() throws IOException {
         if (this.printWriter != null) {
-            this.printWriter.close();
+            this.printWriter.flush();
         }
 
         if (this.gzipOutputStream != null) {
-            this.gzipOutputStream.close();
+            this.gzipOutputStream.finish();
         }
     }
 
     /**
-     * Flush OutputStream or PrintWriter
+     * Flush OutputStream or PrintWriter, the wrapped response being only flushed once it is known whether
+     * it is compressed.
      *
      * @throws IOException
      */
@@ -48,15 +105,9 @@ class GZipServletResponseWrapper extends HttpServletResponseWrapper {
 
         if (this.gzipOutputStream != null) {
             this.gzipOutputStream.flush();
-        }
-
-        // doing this might leads to response already committed exception
-        // when the PageInfo has not yet built but the buffer already flushed
-        // Happens in Weblogic when a servlet forward to a JSP page and the forward
-        // method trigger a flush before it forwarded to the JSP
-        // disableFlushBuffer for that purpose is 'true' by default
-        if (!disableFlushBuffer) {
-            super.flushBuffer();
+            if (this.gzipOutputStream.isOpen()) {
+                super.flushBuffer();
+            }
         }
     }
 
@@ -67,48 +118,88 @@ class GZipServletResponseWrapper extends HttpServletResponseWrapper {
                     "PrintWriter obtained already - cannot get OutputStream");
         }
 
+        if (this.gzipOutputStream == null) {
+            this.gzipOutputStream = new GZipServletOutputStream(this, minSize);
+        }
         return this.gzipOutputStream;
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
         if (this.printWriter == null) {
-            this.gzipOutputStream = new GZipServletOutputStream(
-                    getResponse().getOutputStream());
+            if (this.gzipOutputStream != null) {
+                throw new IllegalStateException(
+                        "OutputStream obtained already - cannot get PrintWriter");
+            }
+            this.gzipOutputStream = new GZipServletOutputStream(this, minSize);
 
             this.printWriter = new PrintWriter(new OutputStreamWriter(
-                    this.gzipOutputStream, getResponse().getCharacterEncoding()), true);
+                    this.gzipOutputStream, getResponse().getCharacterEncoding()));
         }
 
         return this.printWriter;
     }
 
-
     @Override
     public void setContentLength(int length) {
-        //ignore, since content length of zipped content
-        //does not match content length of unzipped content.
+        this.contentLength = length;
     }
 
-    /**
-     * Flushes all the streams for this response.
-     */
-    public void flush() throws IOException {
-        if (printWriter != null) {
-            printWriter.flush();
+    @Override
+    public void setContentLengthLong(long length) {
+        this.contentLength = length;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = Long.parseLong(value);
+        } else {
+            super.setHeader(name, value);
         }
+    }
 
-        if (gzipOutputStream != null) {
-            gzipOutputStream.flush();
+    @Override
+    public void addHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = Long.parseLong(value);
+        } else {
+            super.addHeader(name, value);
         }
     }
 
-    /**
-     * Set if the wrapped reponse's buffer flushing should be disabled.
-     *
-     * @param disableFlushBuffer true if the wrapped reponse's buffer flushing should be disabled
-     */
-    public void setDisableFlushBuffer(boolean disableFlushBuffer) {
-        this.disableFlushBuffer = disableFlushBuffer;
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = value;
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = value;
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (this.gzipOutputStream != null && !this.gzipOutputStream.isOpen()) {
+            this.gzipOutputStream.discard();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.contentLength = -1;
+        if (this.gzipOutputStream != null && !this.gzipOutputStream.isOpen()) {
+            this.gzipOutputStream.discard();
+        }
     }
 }
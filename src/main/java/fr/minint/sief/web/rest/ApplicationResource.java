@@ -3,6 +3,7 @@ package fr.minint.sief.web.rest;
 import static fr.minint.sief.domain.enumeration.ApplicationNature.naturalisation;
 import static fr.minint.sief.domain.enumeration.ApplicationNature.sejour_etudiant;
 import static fr.minint.sief.domain.enumeration.ApplicationNature.sejour_tmp_etudiant;
+import static fr.minint.sief.domain.enumeration.ApplicationStatus.draft;
 import static fr.minint.sief.domain.enumeration.ApplicationStatus.favorable_proposal;
 import static fr.minint.sief.domain.enumeration.ApplicationStatus.identity_verified;
 import static fr.minint.sief.domain.enumeration.ApplicationStatus.paid;
@@ -12,20 +13,28 @@ import static fr.minint.sief.domain.enumeration.ApplicationStatus.validated;
 import static fr.minint.sief.domain.enumeration.ApplicationType.premiere;
 import static fr.minint.sief.domain.enumeration.ApplicationType.renouvellement;
 import static java.util.Arrays.asList;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -35,22 +44,33 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.ApplicationCount;
+import fr.minint.sief.domain.Identity;
 import fr.minint.sief.domain.enumeration.ApplicationNature;
 import fr.minint.sief.domain.enumeration.ApplicationStatus;
 import fr.minint.sief.domain.enumeration.ApplicationType;
+import fr.minint.sief.domain.enumeration.UpdateOutcome;
 import fr.minint.sief.repository.ApplicationRepository;
-import fr.minint.sief.repository.UserRepository;
+import fr.minint.sief.repository.Keyset;
 import fr.minint.sief.security.SecurityUtils;
+import fr.minint.sief.service.ApplicationCountService;
 import fr.minint.sief.service.ApplicationService;
 import fr.minint.sief.service.MailService;
+import fr.minint.sief.service.RdvService;
 import fr.minint.sief.web.rest.dto.ApplicationCountDTO;
 import fr.minint.sief.web.rest.dto.ApplicationDTO;
 import fr.minint.sief.web.rest.dto.ApplicationHistoryDTO;
+import fr.minint.sief.web.rest.dto.ApplicationSummaryDTO;
 import fr.minint.sief.web.rest.mapper.ApplicationMapper;
+import fr.minint.sief.web.rest.mapper.ApplicationSummaryMapper;
+import fr.minint.sief.web.rest.util.JsonStreamUtil;
+import fr.minint.sief.web.rest.util.PaginationUtil;
 
 /**
  * REST controller for managing Application.
@@ -64,18 +84,27 @@ public class ApplicationResource {
     @Inject
     private ApplicationRepository applicationRepository;
 
-    @Inject
-    private UserRepository userRepository;
-
     @Inject
     private MailService mailService;
     
     @Inject
     private ApplicationService applicationService;
 
+    @Inject
+    private ApplicationCountService applicationCountService;
+
+    @Inject
+    private RdvService rdvService;
+
     @Inject
     private ApplicationMapper applicationMapper;
 
+    @Inject
+    private ApplicationSummaryMapper applicationSummaryMapper;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     /**
      * POST  /application -> create an application
      * 
@@ -109,25 +138,25 @@ public class ApplicationResource {
 				.filter(application -> application.getEmail().equals(SecurityUtils.getCurrentLogin()))
 				.map(application -> {
 					applicationRepository.delete(application.getId());
+					applicationCountService.deleted(application);
 					return new ResponseEntity<>(HttpStatus.OK);
 				})
 				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
 	}
 
     /**
-     * GET /application -> Get all application owned by current user
+     * GET /application -> Get all application owned by current user, streamed from the database
      * 
-     * @return List of application owned by current user
+     * @param response The response the applications are written to
      */
 	@RequestMapping(value = "/application", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> get() {
+	public void get(HttpServletResponse response) throws IOException {
 		log.debug("REST request to get all application owned by current user");
-		return applicationService.getUserApplications().stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-	            .collect(Collectors.toCollection(LinkedList::new));
+		JsonStreamUtil.writeArray(response, objectMapper, applicationService.getUserApplications()
+				.map(applicationMapper::applicationToApplicationDTO));
 	}
     
 	/**
@@ -152,37 +181,38 @@ public class ApplicationResource {
 	 * Get /application/statut -> Get application corresponding to the specified status
 	 * 
 	 * @param status The status of the application to look for
-	 * @return All application that have the status specified
+	 * @param email The email of the owner of the application to look for, optional
+	 * @param after The continuation token of the previous page, optional
+	 * @param limit The page size, optional
+	 * @return A page of application that have the status specified
 	 */
 	@RequestMapping(value = "/application/statut", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> getByStatus(@RequestParam List<ApplicationStatus> status, String email) {
-		log.debug("REST request to get application by statut {} and email {}", status, email);
-		List<Application> applications = email == null ? applicationRepository.findByStatutInOrderByCreationDateAsc(status) 
-				: applicationRepository.findByStatutInAndEmailOrderByCreationDateAsc(status, email);
-		return applications
-				.stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-				.collect(Collectors.toCollection(LinkedList::new));
+	public ResponseEntity<List<ApplicationSummaryDTO>> getByStatus(@RequestParam List<ApplicationStatus> status, String email,
+			@RequestParam(required = false) String after, @RequestParam(value = "per_page", required = false) Integer limit) {
+		log.debug("REST request to get application by statut {} and email {} after {}", status, email, after);
+		int pageSize = PaginationUtil.generateLimit(limit);
+		List<Application> applications = applicationRepository.findSummaryPageByStatutInOrderByCreationDateAsc(status, email, 
+				PaginationUtil.parseContinuationToken(after), pageSize);
+		return toPage(applications, Application::getCreationDate, pageSize);
 	}
 	
 	/**
-	 * Get /application/history -> Get history of application validated corresponding to the specified email
+	 * Get /application/history -> Get history of application validated corresponding to the specified email, streamed from the database
 	 * 
 	 * @param email The email of the user to look for application history
-	 * @return All application known in history
+	 * @param response The response the application history is written to
 	 */
 	@RequestMapping(value = "/application/history", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationHistoryDTO> getHistory(@RequestParam String email) {
+	public void getHistory(@RequestParam String email, HttpServletResponse response) throws IOException {
 		log.debug("REST request to get application history by email {}", email);
-		List<Application> applications = applicationRepository.findByStatutInAndEmailOrderByCreationDateAsc(asList(validated), email);
-		return applications
-				.stream()
+		Stream<Application> applications = applicationRepository.streamByStatutInAndEmailOrderByCreationDateAsc(asList(validated), email);
+		JsonStreamUtil.writeArray(response, objectMapper, applications
 				.map(app -> {
 					return new ApplicationHistoryDTO(
 									app.getId(), 
@@ -191,12 +221,11 @@ public class ApplicationResource {
 									// TODO Besoin de gérer date de début et fin du séjour d'une meilleur façon (pas forcément un an)
 									app.getProject().getTrainingStart(), 
 									app.getProject().getTrainingStart().plusYears(1).minusDays(1));
-				})
-				.collect(Collectors.toCollection(LinkedList::new));
+				}));
 	}
     
 	/**
-	 * GET /application/count -> get count of all application in three status : recevability, identification and decision
+	 * GET /application/count -> get count of all application by status and nature, with the agent dashboard counters
 	 * 
 	 * @return The count of application
 	 */
@@ -206,14 +235,8 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<ApplicationCountDTO> getCount() {
 		log.debug("REST request to get count of application not archived");
-		// TODO Tout mettre en une seule requete & accessoirement revoir tout ça pour gérer plus de statut
-		// -> on renvoit une liste de type (?) et on laisse le front gérer le count qu'il veut
 		ApplicationCountDTO count = new ApplicationCountDTO();
-		count.setNbPaid(applicationRepository.countByStatutIn(asList(paid)));
-		count.setNbScheduled(applicationRepository.countByStatutIn(asList(scheduled)));
-		count.setNbIdentityVerified(applicationRepository.countByStatutIn(asList(identity_verified, favorable_proposal)));
-		count.setNbCivilStateToReconstruct(applicationRepository.countByStatutInAndNatureAndReconstructionDateIsNull(validated, naturalisation));
-		count.setNbPermitToIssue(applicationRepository.countByStatutInAndNatureAndReceiptDateIsNotNullAndIssuingDateIsNull(validated, ApplicationNature.sejour_tmp_etudiant));
+		applicationCountService.getCounts().forEach(count::add);
 		return new ResponseEntity<>(count, HttpStatus.OK);
 	}
 	
@@ -259,39 +282,33 @@ public class ApplicationResource {
         return Optional.ofNullable(applicationRepository.findOne(id))
         		.filter(application -> application.getEmail().equals(SecurityUtils.getCurrentLogin()))
             	.map(application -> {
-            		application.setStatut(ApplicationStatus.paid);
-            		application.setPaymentDate(DateTime.now());
+            		Update update = new Update()
+            				.set("statut", paid)
+            				.set("paymentDate", DateTime.now());
             		
                     applicationRepository.findFirstByStatutInAndEmailOrderByDecisionDateDesc(asList(validated), application.getEmail())
                     	.ifPresent(lastApplication -> {
                     		if( ! application.getIdentity().equalsWithoutFamily(lastApplication.getIdentity())) {
-                    			application.getIdentity().setAdmissible(null);
-                    			application.getIdentity().setValidateOn(null);
+                    			update.unset("identity.admissible").unset("identity.validateOn");
                     		}
                     		if( ! application.getIdentity().equalsOnlyFamily(lastApplication.getIdentity())) {
-                    			application.getIdentity().setFamilyAdmissible(null);
-                    			application.getIdentity().setFamilyValidateOn(null);
+                    			update.unset("identity.familyAdmissible").unset("identity.familyValidateOn");
                     		}
                     		if( ! application.getAddress().equals(lastApplication.getAddress())) {
-                    			application.getAddress().setAdmissible(null);
-                    			application.getAddress().setValidateOn(null);
+                    			update.unset("address.admissible").unset("address.validateOn");
                     		}
                     	});
                     
-                    applicationRepository.save(application);
-                    mailService.sendApplicationPaidEmail(application, getBaseUrl(request));
-                    
-                    // Update user infos
-                    return userRepository.findOneByEmail(application.getEmail())
-	                    	.map(user -> {
-	                    		user.setIdentity(application.getIdentity());
-                    			user.setComingDate(application.getProject().getComingDate());
-                    			user.setAddress(application.getAddress());
-	                    		userRepository.save(user);
-	                    		
-	                    		return new ResponseEntity<>(HttpStatus.OK);
-	                    	})
-	                    	.orElse(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+                    return applicationService.transition(application, asList(draft), update)
+                    		.map(paidApplication -> {
+                    			mailService.sendApplicationPaidEmail(paidApplication, getBaseUrl(request));
+                    			
+                    			// Update user infos
+                    			return applicationService.updateUserInformation(paidApplication)
+                    					.map(user -> new ResponseEntity<>(HttpStatus.OK))
+                    					.orElse(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+                    		})
+                    		.orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
             	})
             	.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
     }
@@ -311,25 +328,40 @@ public class ApplicationResource {
 		log.debug("REST request to make receivable application : {}", id);
 		return Optional.ofNullable(applicationRepository.findOne(id))
 				.map(application -> {
-					application.setStatut(application.getType() == renouvellement ? identity_verified : receivable);
 					application.setAdmissibility(DateTime.now());
-					applicationRepository.save(application);
-					
-					if(application.getStatut() == receivable) {
-						mailService.sendApplicationReceivableEmail(application, getBaseUrl(request));
-					}
-                    return new ResponseEntity<>(HttpStatus.OK);
+					Update update = new Update()
+							.set("statut", application.getType() == renouvellement ? identity_verified : receivable)
+							.set("admissibilityDate", application.getAdmissibilityDate())
+							.set("identity.admissible", true)
+							.set("identity.familyAdmissible", true)
+							.set("identity.changed", false)
+							.set("identity.foreignerNumber", application.getIdentity().getForeignerNumber())
+							.set("address.admissible", true)
+							.set("address.changed", false)
+							.set("address.validateOn", application.getAddress().getValidateOn())
+							.set("project.admissible", true);
+					return applicationService.transition(application, asList(paid), update)
+							.map(verified -> {
+								if(verified.getStatut() == receivable) {
+									mailService.sendApplicationReceivableEmail(verified, getBaseUrl(request));
+								}
+								return new ResponseEntity<>(HttpStatus.OK);
+							})
+							.orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
 				})
 				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
 	}
 
 	/**
 	 * PUT /application/schedule -> Schedule an application to a specified date and send a mail
+	 * <p>
+	 * A scheduled application can be scheduled again, the place of its previous appointment is then released.
+	 * </p>
 	 * 
 	 * @param id The id of the application to scheduled
 	 * @param rdvDate The scheduled date for the application
 	 * @param request The HttpServletRequest used to get base url
-	 * @return HttpStatus
+	 * @return HttpStatus, CONFLICT if the slot is full or the application was scheduled meanwhile
 	 */
 	@RequestMapping(value = "/application/rdv", 
 					method = RequestMethod.PUT, 
@@ -337,16 +369,31 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> rdv(@Valid @RequestBody ApplicationDTO applicationDTO, HttpServletRequest request) {
 		log.debug("REST request to schedule application : {}", applicationDTO);
-		return Optional.ofNullable(applicationRepository.findOne(applicationDTO.getId()))
-        		.filter(application -> application.getEmail().equals(SecurityUtils.getCurrentLogin()))
-				.map(application -> {
-					application.setStatut(ApplicationStatus.scheduled);
-					application.setRdvDate(applicationDTO.getRdvDate());
-					applicationRepository.save(application);
-					mailService.sendApplicationScheduledEmail(application, getBaseUrl(request));
-                    return new ResponseEntity<>(HttpStatus.OK);
-				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+		DateTime rdvDate = applicationDTO.getRdvDate();
+		Optional<Application> booking = rdvDate != null ? rdvService.getBooking(applicationDTO.getId()) : Optional.empty();
+		if (!booking.isPresent()) {
+			return transitionRejected(applicationDTO.getId());
+		}
+		String site = rdvService.getSite(booking.get().getNature());
+		DateTime previousRdvDate = booking.get().getStatut() == scheduled ? booking.get().getRdvDate() : null;
+		// The slot is reserved first, and released if the application was scheduled meanwhile
+		if (!rdvService.reserve(site, rdvDate)) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		Update update = new Update()
+				.set("statut", scheduled)
+				.set("rdvDate", rdvDate);
+		Optional<Application> scheduledApplication = applicationService.transition(applicationDTO.getId(), asList(receivable, scheduled), 
+				where("email").is(SecurityUtils.getCurrentLogin()).and("rdvDate").is(booking.get().getRdvDate()), update);
+		if (!scheduledApplication.isPresent()) {
+			rdvService.release(site, rdvDate);
+			return transitionRejected(applicationDTO.getId());
+		}
+		if (previousRdvDate != null) {
+			rdvService.release(site, previousRdvDate);
+		}
+		mailService.sendApplicationScheduledEmail(scheduledApplication.get(), getBaseUrl(request));
+		return new ResponseEntity<>(HttpStatus.OK);
 	}
 
 	/**
@@ -361,20 +408,25 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> identifyDocuments(@Valid @RequestBody String id) {
 		log.debug("REST request to make identified documents' application : {}", id);
-		return Optional.ofNullable(applicationRepository.findOne(id))
+		DateTime now = DateTime.now();
+		return applicationService.transition(id, asList(scheduled), application -> {
+					Identity identity = application.getIdentity();
+					identity.validateNewDocuments(now);
+					return new Update()
+							.set("identity.documents", identity.getDocuments())
+							.set("identity.validateOn", identity.getValidateOn())
+							.set("identity.family", identity.getFamily())
+							.set("identity.familyValidateOn", identity.getFamilyValidateOn());
+				})
 				.map(application -> {
-					DateTime now = DateTime.now();
-					application.getIdentity().validateNewDocuments(now);
 					// TODO Revoir moyen de décider que l'étape est passée
 					if((application.getNature() != naturalisation && application.getBiometricsDate() != null)
 							|| (application.getNature() == naturalisation && application.getInterviewDate() != null)) {
-						application.setStatut(ApplicationStatus.identity_verified);
+						verifyIdentity(application);
 					}
-					applicationRepository.save(application);
-					
-                    return new ResponseEntity<>(HttpStatus.OK);
+					return new ResponseEntity<>(HttpStatus.OK);
 				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+				.orElseGet(() -> transitionRejected(id));
 	}
 
 	/**
@@ -389,17 +441,15 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> identifyBiometrics(@Valid @RequestBody String id) {
 		log.debug("REST request to make identified biometrics' application : {}", id);
-		return Optional.ofNullable(applicationRepository.findOne(id))
+		return applicationService.transition(id, asList(scheduled), new Update().set("biometricsDate", DateTime.now()))
 				.map(application -> {
-					application.setBiometricsDate(DateTime.now());
 					// TODO Revoir moyen de décider que l'étape est passée
 					if(!application.getIdentity().hasDocumentToValidate()) {
-						application.setStatut(ApplicationStatus.identity_verified);
+						verifyIdentity(application);
 					}
-					applicationRepository.save(application);
                     return new ResponseEntity<>(HttpStatus.OK);
 				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+				.orElseGet(() -> transitionRejected(id));
 	}
 
     /**
@@ -415,18 +465,18 @@ public class ApplicationResource {
     @Timed
     public ResponseEntity<?> interview(@Valid @RequestParam String id, @Valid @RequestParam String report) {
         log.debug("REST request to interview : {} {}", id, report);
-        return Optional.ofNullable(applicationRepository.findOne(id))
+        Update update = new Update()
+        		.set("interviewDate", DateTime.now())
+        		.set("interviewReport", report);
+        return applicationService.transition(id, asList(scheduled), update)
         		.map(application -> {
-        			application.setInterviewDate(DateTime.now());
-        			application.setInterviewReport(report);
         			// TODO Revoir moyen de décider que l'étape est passée
 					if(!application.getIdentity().hasDocumentToValidate()) {
-						application.setStatut(ApplicationStatus.identity_verified);
+						verifyIdentity(application);
 					}
-					applicationRepository.save(application);
                     return new ResponseEntity<>(HttpStatus.OK);
 				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+				.orElseGet(() -> transitionRejected(id));
     }
 
 	/**
@@ -442,20 +492,14 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> validate(@Valid @RequestBody String id, HttpServletRequest request) {
 		log.debug("REST request to validate application : {}", id);
-		return Optional.ofNullable(applicationRepository.findOne(id))
+		DateTime now = DateTime.now();
+		Update update = new Update()
+				.set("statut", validated)
+				.set("project.validateOn", now)
+				.set("decisionDate", now);
+		return applicationService.transition(id, asList(identity_verified, favorable_proposal), update)
 				.map(application -> {
-					DateTime now = DateTime.now();
-					application.getProject().setValidateOn(now);
-					application.setDecisionDate(now);
-					application.setStatut(validated);
-					applicationRepository.save(application);
 					mailService.sendApplicationValidatedEmail(application, getBaseUrl(request));
-					try {
-						Thread.sleep(400);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-					// Send more emails to have to be send by batch in reality
 					if(application.getNature() == sejour_etudiant) {
 						mailService.sendPermitEmail(application, getBaseUrl(request));
 						if(application.getType() == premiere) {
@@ -466,65 +510,85 @@ public class ApplicationResource {
 					}
                     return new ResponseEntity<>(HttpStatus.OK);
 				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+				.orElseGet(() -> transitionRejected(id));
 	}
 
 	/**
 	 * GET /application/receipt -> Get applications that need to be receipted
 	 * 
-     * @return List of application that need to be receipted
+	 * @param foreignerNumber The foreigner number of the application to find, optional
+	 * @param after The continuation token of the previous page, optional
+	 * @param limit The page size, optional
+     * @return A page of application that need to be receipted
      */
 	@RequestMapping(value = "/application/receipt", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> getApplicationToReceipt() {
-		log.debug("REST request to get applications that need to be receipted");
-		return applicationRepository.findByStatutAndNatureAndReceiptDateIsNullOrderByDecisionDateDesc(validated, sejour_tmp_etudiant)
-				.stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-				.collect(Collectors.toCollection(ArrayList::new));
+	public ResponseEntity<List<ApplicationSummaryDTO>> getApplicationToReceipt(@RequestParam(required = false) String foreignerNumber, 
+			@RequestParam(required = false) String after, @RequestParam(value = "per_page", required = false) Integer limit) {
+		log.debug("REST request to get applications that need to be receipted with foreigner number {} after {}", foreignerNumber, after);
+		int pageSize = PaginationUtil.generateLimit(limit);
+		List<Application> applications = applicationRepository.findSummaryPageByStatutAndNatureAndReceiptDateIsNullOrderByDecisionDateDesc(
+				validated, sejour_tmp_etudiant, foreignerNumber, PaginationUtil.parseContinuationToken(after), pageSize);
+		return toPage(applications, Application::getDecisionDate, pageSize);
 	}
 
 	/**
 	 * PUT /application/receipt -> Permit receipt
 	 * 
 	 * @param id The list of application id that have permit receipt
-     * @return HttpStatus
+	 * @param request The HttpServletRequest used to get base url
+     * @return The outcome for each application id: updated, unchanged when already receipted or not validated, or not_found
      */
 	@RequestMapping(value = "/application/receipt", 
 					method = RequestMethod.PUT, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public ResponseEntity<?> permitReceipt(@Valid @RequestBody List<String> id, HttpServletRequest request) {
+	public ResponseEntity<Map<String, UpdateOutcome>> permitReceipt(@Valid @RequestBody List<String> id, HttpServletRequest request) {
 		log.debug("REST request to application that have permit receipt : {}", id);
-		return Optional.ofNullable(applicationRepository.findAll(id))
-				.map(applications -> {
-					applications.forEach(application -> {
-						application.setReceiptDate(DateTime.now());
-						applicationRepository.save(application);
-						mailService.sendPermitEmail(application, getBaseUrl(request));
-					});
-                    return new ResponseEntity<>(HttpStatus.OK);
-				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+		Map<String, UpdateOutcome> outcomes = new LinkedHashMap<>();
+		id.forEach(applicationId -> outcomes.put(applicationId, UpdateOutcome.not_found));
+
+		Map<String, Application> applications = new HashMap<>();
+		applicationRepository.findAll(outcomes.keySet()).forEach(application -> applications.put(application.getId(), application));
+		Map<String, ApplicationCount> previous = new HashMap<>();
+		applications.values().forEach(application -> previous.put(application.getId(), ApplicationCount.of(application)));
+
+		DateTime now = DateTime.now();
+		List<Application> receipted = new ArrayList<>();
+		applicationRepository.updateReceiptDate(applications.keySet(), now).forEach(applicationId -> {
+			Application application = applications.get(applicationId);
+			application.setReceiptDate(now);
+			receipted.add(application);
+		});
+		applications.keySet().forEach(applicationId -> outcomes.put(applicationId, UpdateOutcome.unchanged));
+		receipted.forEach(application -> outcomes.put(application.getId(), UpdateOutcome.updated));
+
+		applicationCountService.transitioned(previous, receipted);
+		mailService.sendPermitEmails(receipted, getBaseUrl(request));
+		return new ResponseEntity<>(outcomes, HttpStatus.OK);
 	}
 
 	/**
 	 * GET /application/issuing -> Get applications that need to be issued
 	 * 
-     * @return List of application that need to be issued
+	 * @param foreignerNumber The foreigner number of the application to find, optional
+	 * @param after The continuation token of the previous page, optional
+	 * @param limit The page size, optional
+     * @return A page of application that need to be issued
      */
 	@RequestMapping(value = "/application/issuing", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> getApplicationToIssued() {
-		log.debug("REST request to get applications that need to be issued");
-		return applicationRepository.findByStatutAndNatureAndReceiptDateIsNotNullAndIssuingDateIsNull(validated, sejour_tmp_etudiant)
-				.stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-				.collect(Collectors.toCollection(ArrayList::new));
+	public ResponseEntity<List<ApplicationSummaryDTO>> getApplicationToIssued(@RequestParam(required = false) String foreignerNumber, 
+			@RequestParam(required = false) String after, @RequestParam(value = "per_page", required = false) Integer limit) {
+		log.debug("REST request to get applications that need to be issued with foreigner number {} after {}", foreignerNumber, after);
+		int pageSize = PaginationUtil.generateLimit(limit);
+		List<Application> applications = applicationRepository.findSummaryPageByStatutAndNatureAndReceiptDateIsNotNullAndIssuingDateIsNullOrderByDecisionDateAsc(
+				validated, sejour_tmp_etudiant, foreignerNumber, PaginationUtil.parseContinuationToken(after), pageSize);
+		return toPage(applications, Application::getDecisionDate, pageSize);
 	}
 
 	/**
@@ -539,47 +603,49 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> permitIssuing(@Valid @RequestBody String id) {
 		log.debug("REST request to application that have permit issuing : {}", id);
-		return Optional.ofNullable(applicationRepository.findOne(id))
-				.map(application -> {
-					application.setIssuingDate(DateTime.now());
-					applicationRepository.save(application);
-                    return new ResponseEntity<>(HttpStatus.OK);
-				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+		return applicationService.transition(id, asList(validated), where("issuingDate").is(null), new Update().set("issuingDate", DateTime.now()))
+				.map(application -> new ResponseEntity<>(HttpStatus.OK))
+				.orElseGet(() -> transitionRejected(id));
 	}
 
 	/**
 	 * GET /application/follow -> Get applications that are validated
 	 * 
-     * @return List of application that are validated
+	 * @param after The continuation token of the previous page, optional
+	 * @param limit The page size, optional
+     * @return A page of application that are validated
      */
 	@RequestMapping(value = "/application/follow", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> getValidatedApplications() {
-		log.debug("REST request to get applications that are validated");
-		return applicationRepository.findByStatutAndNatureAndDecisionDateIsNotNull(validated, sejour_tmp_etudiant)
-				.stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-				.collect(Collectors.toCollection(ArrayList::new));
+	public ResponseEntity<List<ApplicationSummaryDTO>> getValidatedApplications(@RequestParam(required = false) String after, 
+			@RequestParam(value = "per_page", required = false) Integer limit) {
+		log.debug("REST request to get applications that are validated after {}", after);
+		int pageSize = PaginationUtil.generateLimit(limit);
+		List<Application> applications = applicationRepository.findSummaryPageByStatutAndNatureAndDecisionDateIsNotNullOrderByDecisionDateAsc(
+				validated, sejour_tmp_etudiant, PaginationUtil.parseContinuationToken(after), pageSize);
+		return toPage(applications, Application::getDecisionDate, pageSize);
 	}
 
 	/**
 	 * GET /application/reconstruction -> Get applications that need to be reconstruct
 	 * 
-     * @return List of application that need to be reconstruct
+	 * @param after The continuation token of the previous page, optional
+	 * @param limit The page size, optional
+     * @return A page of application that need to be reconstruct
      */
 	@RequestMapping(value = "/application/reconstruct", 
 					method = RequestMethod.GET, 
 					produces = MediaType.APPLICATION_JSON_VALUE)
 	@Timed
-	public List<ApplicationDTO> getApplicationToReconstruct() {
-		log.debug("REST request to get applications that need to reconstruct civil state");
-		return applicationRepository.findByStatutAndNatureAndReconstructionDateIsNull(validated, naturalisation)
-				.stream()
-				.map(applicationMapper::applicationToApplicationDTO)
-				.collect(Collectors.toCollection(ArrayList::new));
+	public ResponseEntity<List<ApplicationSummaryDTO>> getApplicationToReconstruct(@RequestParam(required = false) String after, 
+			@RequestParam(value = "per_page", required = false) Integer limit) {
+		log.debug("REST request to get applications that need to reconstruct civil state after {}", after);
+		int pageSize = PaginationUtil.generateLimit(limit);
+		List<Application> applications = applicationRepository.findSummaryPageByStatutAndNatureAndReconstructionDateIsNullOrderByDecisionDateAsc(
+				validated, naturalisation, PaginationUtil.parseContinuationToken(after), pageSize);
+		return toPage(applications, Application::getDecisionDate, pageSize);
 	}
 
 	/**
@@ -594,15 +660,44 @@ public class ApplicationResource {
 	@Timed
 	public ResponseEntity<?> reconstruct(@Valid @RequestBody String id) {
 		log.debug("REST request to application that need to reconstruct civil state : {}", id);
-		return Optional.ofNullable(applicationRepository.findOne(id))
-				.map(application -> {
-					application.setReconstructionDate(DateTime.now());
-					applicationRepository.save(application);
-                    return new ResponseEntity<>(HttpStatus.OK);
-				})
-				.orElseGet(() -> new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+		return applicationService.transition(id, asList(validated), where("reconstructionDate").is(null), new Update().set("reconstructionDate", DateTime.now()))
+				.map(application -> new ResponseEntity<>(HttpStatus.OK))
+				.orElseGet(() -> transitionRejected(id));
 	}
     
+    /**
+     * Map a summary page of applications and link it to the next one, which starts after the last application when the page is full.
+     */
+    private ResponseEntity<List<ApplicationSummaryDTO>> toPage(List<Application> applications, Function<Application, DateTime> sortDate, int limit) {
+    	Keyset next = null;
+    	if (applications.size() == limit) {
+    		Application last = applications.get(applications.size() - 1);
+    		next = new Keyset(sortDate.apply(last), last.getId());
+    	}
+    	List<ApplicationSummaryDTO> page = applications
+    			.stream()
+    			.map(applicationSummaryMapper::applicationToApplicationSummaryDTO)
+    			.collect(Collectors.toCollection(ArrayList::new));
+    	return new ResponseEntity<>(page, 
+    			PaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), next, limit), 
+    			HttpStatus.OK);
+    }
+    
+    /**
+     * Complete the identification of an application once its last step is done.
+     * A concurrent step may have completed it first, in which case the status is already up to date.
+     */
+    private void verifyIdentity(Application application) {
+    	applicationService.transition(application.getId(), asList(scheduled), new Update().set("statut", identity_verified));
+    }
+    
+    /**
+     * Tell a missing application from one whose status changed since the transition was requested.
+     */
+    private ResponseEntity<Object> transitionRejected(String id) {
+    	return new ResponseEntity<>(applicationRepository.exists(id) ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND);
+    }
+    
     private String getBaseUrl(HttpServletRequest request) {
     	return request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort();
     }
@@ -1,12 +1,29 @@
 package fr.minint.sief.web.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
 
+import org.apache.commons.io.input.ReaderInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -16,7 +33,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.codahale.metrics.annotation.Timed;
 
+import fr.minint.sief.domain.DocumentContent;
 import fr.minint.sief.domain.enumeration.DocumentType;
+import fr.minint.sief.service.util.DocumentRenderer;
+import fr.minint.sief.service.util.DocumentRenderer.Rendition;
 import fr.minint.sief.service.util.FileService;
 import fr.minint.sief.web.rest.dto.DocumentDTO;
 import fr.minint.sief.web.rest.mapper.DocumentMapper;
@@ -25,10 +45,21 @@ import fr.minint.sief.web.rest.mapper.DocumentMapper;
  * REST controller for managing Identity.
  */
 @RestController
-@RequestMapping("/fileUpload")
 public class FileUploadResource {
 
     private final Logger log = LoggerFactory.getLogger(FileUploadResource.class);
+
+    /**
+     * Time a rendition is cached by the browser before being revalidated, in seconds.
+     */
+    private static final long RENDITION_MAX_AGE = 24 * 60 * 60;
+
+    /**
+     * Time a content is cached by the browser, in seconds.
+     */
+    private static final long CONTENT_MAX_AGE = 365 * 24 * 60 * 60;
+
+    private static final String BYTES_RANGE = "bytes=";
     
     @Inject
     private FileService fileService;
@@ -36,13 +67,16 @@ public class FileUploadResource {
     @Inject
     private DocumentMapper documentMapper;
 
+    @Inject
+    private DocumentRenderer documentRenderer;
+
     /**
      * POST  /document -> save file
      * 
      * @param file
      * @param type
      */
-    @RequestMapping(value = "/document", 
+    @RequestMapping(value = "/fileUpload/document", 
     				method = RequestMethod.POST,
 					produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
@@ -60,21 +94,209 @@ public class FileUploadResource {
     }
 
     /**
-     * POST  /photo -> save uri file
+     * POST  /biometrics -> save a base64 encoded photo sent as a multipart part, decoded while it is streamed
      * 
      * @param uri
      * @param type
      * @param idApplication
      */
-    @RequestMapping(value = "/biometrics", method = RequestMethod.POST)
-    @ResponseBody
+    @RequestMapping(value = "/fileUpload/biometrics",
+    				method = RequestMethod.POST,
+    				consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Timed
+    public ResponseEntity<Void> uploadPhoto(@RequestParam Part uri, @RequestParam String type, @RequestParam String idApplication) throws IOException {
+    	if (uri.getSize() == 0) {
+    		log.debug( "You failed to upload a " + type + " because the file was empty.");
+    		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    	}
+
+    	try (InputStream in = uri.getInputStream()) {
+    		return fileService.loadBase64Photo(in, type, idApplication) ?
+    				new ResponseEntity<>(HttpStatus.OK) : new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    	}
+    }
+
+    /**
+     * POST  /biometrics -> save a base64 encoded photo sent as a form field, as the legacy clients do. The field is
+     * already read by the servlet container, it is encoded and decoded while it is streamed, without another copy.
+     * 
+     * @param uri
+     * @param type
+     * @param idApplication
+     */
+    @RequestMapping(value = "/fileUpload/biometrics", method = RequestMethod.POST)
     @Timed
-    public void uploadPhoto(@RequestParam String uri, @RequestParam String type, @RequestParam String idApplication)  {
+    public ResponseEntity<Void> uploadPhoto(@RequestParam String uri, @RequestParam String type, @RequestParam String idApplication) {
     	if (uri.isEmpty()) {
-    		log.debug( "You failed to upload " + uri + " because the file was empty.");
-    		return;
+    		log.debug( "You failed to upload a " + type + " because the file was empty.");
+    		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     	}
-    	
-    	fileService.loadPhoto(uri, type, idApplication);
+
+    	return fileService.loadBase64Photo(new ReaderInputStream(new StringReader(uri), StandardCharsets.ISO_8859_1), type, idApplication) ?
+    			new ResponseEntity<>(HttpStatus.OK) : new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * POST  /biometrics/:idApplication/:type -> save a photo sent as the request body
+     *
+     * @param idApplication
+     * @param type
+     * @param request
+     */
+    @RequestMapping(value = "/fileUpload/biometrics/{idApplication}/{type}",
+    				method = RequestMethod.POST,
+    				consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE})
+    @Timed
+    public ResponseEntity<Void> uploadPhoto(@PathVariable String idApplication, @PathVariable String type, HttpServletRequest request) throws IOException {
+    	if (request.getContentLength() == 0) {
+    		log.debug( "You failed to upload a " + type + " because the file was empty.");
+    		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    	}
+
+    	try (InputStream in = request.getInputStream()) {
+    		return fileService.loadPhoto(in, type, idApplication) ?
+    				new ResponseEntity<>(HttpStatus.OK) : new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    	}
+    }
+
+    /**
+     * GET  /api/documents/:checksum -> get the content of the documents with this checksum, or a range of it
+     *
+     * @param checksum
+     * @param ifNoneMatch
+     * @param range
+     * @param ifRange
+     * @param response
+     */
+    @RequestMapping(value = "/api/documents/{checksum:[0-9a-f]+}", method = RequestMethod.GET)
+    @Timed
+    public void getDocument(@PathVariable String checksum,
+    		@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+    		@RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+    		@RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+    		HttpServletResponse response) throws IOException {
+        Optional<DocumentContent> content = fileService.getContent(checksum);
+        if (!content.isPresent()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        long size = content.get().getSize();
+        String eTag = "\"" + checksum + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // The url is the hash of the content, which never changes
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + CONTENT_MAX_AGE);
+        if (matches(ifNoneMatch, eTag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        // A range of another version of the content is ignored, the whole content is sent
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            }
+        }
+        response.setContentType(content.get().getContentType());
+        response.setContentLengthLong(end - start + 1);
+        fileService.copyContent(checksum, start, end - start + 1, response.getOutputStream());
+    }
+
+    /**
+     * Parse a single byte range
+     *
+     * @return The first and last positions of the range, an empty array if it is not satisfiable, or null if it
+     * is invalid or has several ranges and should be ignored
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith(BYTES_RANGE) || range.contains(",")) {
+            return null;
+        }
+        String spec = range.substring(BYTES_RANGE.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                return suffix <= 0 || size == 0 ? new long[0] : new long[] {Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return new long[0];
+            }
+            return end < start ? null : new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * GET  /api/documents/:checksum/:rendition -> get the preview or the thumbnail of the documents with this checksum
+     *
+     * @param checksum
+     * @param rendition
+     * @param ifNoneMatch
+     */
+    @RequestMapping(value = "/api/documents/{checksum:[0-9a-f]+}/{rendition}", method = RequestMethod.GET)
+    @Timed
+    public ResponseEntity<Resource> getDocumentRendition(@PathVariable String checksum, @PathVariable Rendition rendition,
+    		@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
+        Optional<DocumentContent> content = fileService.getContent(checksum);
+        if (!content.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(documentRenderer.getETag(checksum, rendition));
+        headers.setCacheControl("private, max-age=" + RENDITION_MAX_AGE);
+        if (matches(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        Optional<Path> file;
+        try {
+            file = documentRenderer.getRendition(checksum, content.get().getContentType(), rendition);
+        } catch (TaskRejectedException e) {
+            log.debug("Too busy to render {} of {}", rendition, checksum);
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (!file.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        headers.setContentType(MediaType.IMAGE_JPEG);
+        return new ResponseEntity<>(new FileSystemResource(file.get().toFile()), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Check if an If-None-Match header matches an ETag
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -1,8 +1,9 @@
 package fr.minint.sief.web.rest;
 
-import java.util.List;
+import java.io.IOException;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,9 +16,11 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.minint.sief.domain.User;
 import fr.minint.sief.repository.UserRepository;
+import fr.minint.sief.web.rest.util.JsonStreamUtil;
 
 /**
  * REST controller for managing users.
@@ -31,16 +34,19 @@ public class UserResource {
     @Inject
     private UserRepository userRepository;
 
+    @Inject
+    private ObjectMapper objectMapper;
+
     /**
-     * GET  /users -> get all users.
+     * GET  /users -> get all users, streamed from the database.
      */
     @RequestMapping(value = "/users",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<User> getAll() {
+    public void getAll(HttpServletResponse response) throws IOException {
         log.debug("REST request to get all Users");
-        return userRepository.findAll();
+        JsonStreamUtil.writeArray(response, objectMapper, userRepository.streamAll());
     }
 
     /**
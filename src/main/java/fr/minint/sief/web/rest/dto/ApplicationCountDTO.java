@@ -1,6 +1,15 @@
 package fr.minint.sief.web.rest.dto;
 
+import static fr.minint.sief.domain.enumeration.ApplicationNature.naturalisation;
+import static fr.minint.sief.domain.enumeration.ApplicationNature.sejour_tmp_etudiant;
+
 import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+
+import fr.minint.sief.domain.ApplicationCount;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
 
 /**
  * A DTO for the Application count.
@@ -14,6 +23,7 @@ public class ApplicationCountDTO implements Serializable {
     private Long nbIdentityVerified = 0L;
     private Long nbCivilStateToReconstruct = 0L;
     private Long nbPermitToIssue = 0L;
+    private Map<ApplicationStatus, Map<ApplicationNature, Long>> counts = new EnumMap<>(ApplicationStatus.class);
 
 	public Long getNbPaid() {
 		return nbPaid;
@@ -55,6 +65,45 @@ public class ApplicationCountDTO implements Serializable {
 		this.nbPermitToIssue = nbPermitToIssue;
 	}
 
+	public Map<ApplicationStatus, Map<ApplicationNature, Long>> getCounts() {
+		return counts;
+	}
+
+	public void setCounts(Map<ApplicationStatus, Map<ApplicationNature, Long>> counts) {
+		this.counts = counts;
+	}
+
+	/**
+	 * Add a group of applications to the status x nature counts and to the agent dashboard counters.
+	 * 
+	 * @param count The count of a group of applications
+	 */
+	public void add(ApplicationCount count) {
+		counts.computeIfAbsent(count.getStatut(), statut -> new EnumMap<>(ApplicationNature.class))
+			.merge(count.getNature(), count.getCount(), Long::sum);
+		switch (count.getStatut()) {
+			case paid:
+				nbPaid += count.getCount();
+				break;
+			case scheduled:
+				nbScheduled += count.getCount();
+				break;
+			case identity_verified:
+			case favorable_proposal:
+				nbIdentityVerified += count.getCount();
+				break;
+			case validated:
+				if (count.getNature() == naturalisation && !count.isReconstructed()) {
+					nbCivilStateToReconstruct += count.getCount();
+				}
+				if (count.getNature() == sejour_tmp_etudiant && count.isReceipted() && !count.isIssued()) {
+					nbPermitToIssue += count.getCount();
+				}
+				break;
+			default:
+		}
+	}
+
 	@Override
     public String toString() {
         return "ApplicationCountDTO{" +
@@ -63,6 +112,7 @@ public class ApplicationCountDTO implements Serializable {
                 ", nbIdentityVerified='" + nbIdentityVerified + "'" +
                 ", nbCivilStateToReconstruct='" + nbCivilStateToReconstruct + "'" +
                 ", nbPermitToIssue='" + nbPermitToIssue + "'" +
+                ", counts='" + counts + "'" +
                 '}';
     }
 }
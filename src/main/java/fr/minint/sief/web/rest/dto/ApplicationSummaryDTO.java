@@ -0,0 +1,219 @@
+package fr.minint.sief.web.rest.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+import fr.minint.sief.domain.enumeration.ApplicationType;
+
+/**
+ * A lightweight DTO for the Application entity, with only what the agent worklists display.
+ */
+public class ApplicationSummaryDTO implements Serializable {
+
+    private String id;
+
+    private String userId;
+
+    private ApplicationNature nature;
+
+    private ApplicationType type;
+
+    private ApplicationStatus statut;
+
+    private String lastName;
+
+    private String firstName;
+
+    private String nationality;
+
+    private String foreignerNumber;
+
+    private boolean documentToCertify;
+
+    private DateTime creationDate;
+
+    private DateTime interviewDate;
+
+    private DateTime biometricsDate;
+
+    private DateTime decisionDate;
+
+    private DateTime receiptDate;
+
+    private DateTime issuingDate;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public ApplicationNature getNature() {
+        return nature;
+    }
+
+    public void setNature(ApplicationNature nature) {
+        this.nature = nature;
+    }
+
+    public ApplicationType getType() {
+        return type;
+    }
+
+    public void setType(ApplicationType type) {
+        this.type = type;
+    }
+
+    public ApplicationStatus getStatut() {
+        return statut;
+    }
+
+    public void setStatut(ApplicationStatus statut) {
+        this.statut = statut;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getNationality() {
+        return nationality;
+    }
+
+    public void setNationality(String nationality) {
+        this.nationality = nationality;
+    }
+
+    public String getForeignerNumber() {
+        return foreignerNumber;
+    }
+
+    public void setForeignerNumber(String foreignerNumber) {
+        this.foreignerNumber = foreignerNumber;
+    }
+
+    public boolean isDocumentToCertify() {
+        return documentToCertify;
+    }
+
+    public void setDocumentToCertify(boolean documentToCertify) {
+        this.documentToCertify = documentToCertify;
+    }
+
+    public DateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(DateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public DateTime getInterviewDate() {
+        return interviewDate;
+    }
+
+    public void setInterviewDate(DateTime interviewDate) {
+        this.interviewDate = interviewDate;
+    }
+
+    public DateTime getBiometricsDate() {
+        return biometricsDate;
+    }
+
+    public void setBiometricsDate(DateTime biometricsDate) {
+        this.biometricsDate = biometricsDate;
+    }
+
+    public DateTime getDecisionDate() {
+        return decisionDate;
+    }
+
+    public void setDecisionDate(DateTime decisionDate) {
+        this.decisionDate = decisionDate;
+    }
+
+    public DateTime getReceiptDate() {
+        return receiptDate;
+    }
+
+    public void setReceiptDate(DateTime receiptDate) {
+        this.receiptDate = receiptDate;
+    }
+
+    public DateTime getIssuingDate() {
+        return issuingDate;
+    }
+
+    public void setIssuingDate(DateTime issuingDate) {
+        this.issuingDate = issuingDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        ApplicationSummaryDTO applicationSummaryDTO = (ApplicationSummaryDTO) o;
+
+        if ( ! Objects.equals(id, applicationSummaryDTO.id)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ApplicationSummaryDTO{" +
+                "id=" + id +
+                ", userId='" + userId + "'" +
+                ", nature='" + nature + "'" +
+                ", type='" + type + "'" +
+                ", statut='" + statut + "'" +
+                ", lastName='" + lastName + "'" +
+                ", firstName='" + firstName + "'" +
+                ", nationality='" + nationality + "'" +
+                ", foreignerNumber='" + foreignerNumber + "'" +
+                ", documentToCertify='" + documentToCertify + "'" +
+                ", creationDate='" + creationDate + "'" +
+                ", interviewDate='" + interviewDate + "'" +
+                ", biometricsDate='" + biometricsDate + "'" +
+                ", decisionDate='" + decisionDate + "'" +
+                ", receiptDate='" + receiptDate + "'" +
+                ", issuingDate='" + issuingDate + "'" +
+                '}';
+    }
+}
@@ -24,6 +24,10 @@ public class DocumentDTO implements Serializable {
     
     @NotNull
     private String fileName;
+
+    private String checksum;
+
+    private long size;
     
     private DateTime validation;
 
@@ -59,6 +63,22 @@ public class DocumentDTO implements Serializable {
 		this.fileName = fileName;
 	}
 
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
 	public DateTime getValidation() {
 		return validation;
 	}
@@ -104,6 +124,8 @@ public class DocumentDTO implements Serializable {
                 ", id='" + id + "'" +
                 ", name='" + name + "'" +
                 ", fileName='" + fileName + "'" +
+                ", checksum='" + checksum + "'" +
+                ", size='" + size + "'" +
                 ", validation='" + validation + "'" +
                 '}';
     }
@@ -6,6 +6,7 @@ public final class ErrorConstants {
     public static final String ERR_ACCESS_DENIED = "error.accessDenied";
     public static final String ERR_VALIDATION = "error.validation";
     public static final String ERR_METHOD_NOT_SUPPORTED = "error.methodNotSupported";
+    public static final String ERR_INVALID_CONTINUATION_TOKEN = "error.invalidContinuationToken";
 
     private ErrorConstants() {
     }
@@ -1,6 +1,8 @@
 package fr.minint.sief.web.rest.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
 
 import fr.minint.sief.domain.Application;
 import fr.minint.sief.web.rest.dto.ApplicationDTO;
@@ -13,5 +15,9 @@ public interface ApplicationMapper {
 
     ApplicationDTO applicationToApplicationDTO(Application application);
 
+    @Mappings({
+        @Mapping(target = "langKey", ignore = true),
+        @Mapping(target = "version", ignore = true)
+    })
     Application applicationDTOToApplication(ApplicationDTO applicationDTO);
 }
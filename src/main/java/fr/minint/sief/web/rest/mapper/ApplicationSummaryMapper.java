@@ -0,0 +1,36 @@
+package fr.minint.sief.web.rest.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
+
+import fr.minint.sief.domain.Application;
+import fr.minint.sief.domain.Identity;
+import fr.minint.sief.web.rest.dto.ApplicationSummaryDTO;
+
+/**
+ * Mapper for the entity Application and its DTO ApplicationSummaryDTO.
+ */
+@Mapper(componentModel = "spring")
+public abstract class ApplicationSummaryMapper {
+
+	@Mappings({
+		@Mapping(source = "identity.lastName", target = "lastName"),
+		@Mapping(source = "identity.firstName", target = "firstName"),
+		@Mapping(source = "identity.nationality", target = "nationality"),
+		@Mapping(source = "identity.foreignerNumber", target = "foreignerNumber"),
+		@Mapping(target = "documentToCertify", expression = "java(hasDocumentToCertify(application.getIdentity()))")
+	})
+	public abstract ApplicationSummaryDTO applicationToApplicationSummaryDTO(Application application);
+
+	/**
+	 * An identity has documents to certify while it or its family is not certified and one of their documents is not validated.
+	 * An application not filled in yet has no identity, so no document to certify.
+	 */
+	protected boolean hasDocumentToCertify(Identity identity) {
+		if (identity == null || identity.getValidateOn() != null && identity.getFamilyValidateOn() != null) {
+			return false;
+		}
+		return identity.hasDocumentToValidate();
+	}
+}
@@ -0,0 +1,48 @@
+package fr.minint.sief.web.rest.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Utility class for streaming large JSON arrays.
+ *
+ * <p>
+ * Elements are serialized one by one as they are read from the stream (typically backed by a Mongo cursor),
+ * so the whole result is never held in memory.
+ * </p>
+ */
+public class JsonStreamUtil {
+
+    /**
+     * Write the elements as a JSON array in the response body, then close the stream.
+     *
+     * <p>
+     * The generator is only flushed when its buffer is full, not after each element.
+     * </p>
+     */
+    public static <T> void writeArray(HttpServletResponse response, ObjectMapper objectMapper, Stream<T> elements) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (Stream<T> stream = elements;
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeStartArray();
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+            }
+            generator.writeEndArray();
+        }
+    }
+}
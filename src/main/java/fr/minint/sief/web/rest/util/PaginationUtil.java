@@ -1,12 +1,20 @@
 package fr.minint.sief.web.rest.util;
 
+import org.joda.time.DateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import fr.minint.sief.repository.Keyset;
+import fr.minint.sief.web.rest.errors.CustomParameterizedException;
+import fr.minint.sief.web.rest.errors.ErrorConstants;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
  * Utility class for handling pagination.
@@ -63,4 +71,63 @@ public class PaginationUtil {
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    public static int generateLimit(Integer limit) {
+        if (limit == null || limit < 1 || limit > MAX_LIMIT) {
+            limit = DEFAULT_LIMIT;
+        }
+        return limit;
+    }
+
+    /**
+     * Generate the opaque continuation token of a keyset paginated page.
+     *
+     * @param keyset the position of the last element of the page, whose date may be null
+     * @return the token to send back to get the next page
+     */
+    public static String generateContinuationToken(Keyset keyset) {
+        String value = (keyset.getDate() == null ? "" : keyset.getDate().getMillis()) + ":" + keyset.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse an opaque continuation token.
+     *
+     * @param token the token sent by the client, may be null for the first page
+     * @return the position after which the next page starts, null for the first page
+     */
+    public static Keyset parseContinuationToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            DateTime date = separator == 0 ? null : new DateTime(Long.parseLong(value.substring(0, separator)));
+            return new Keyset(date, value.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_CONTINUATION_TOKEN, token);
+        }
+    }
+
+    /**
+     * Generate the Link header of a keyset paginated page, keeping the other parameters of the current request.
+     *
+     * @param currentRequest the current request uri
+     * @param next the position of the last element of the page, null if it is the last page
+     * @param limit the page size
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder currentRequest, Keyset next, int limit) {
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (next != null) {
+            link = "<" + currentRequest.replaceQueryParam("after", generateContinuationToken(next))
+                .replaceQueryParam("per_page", limit).build().toUriString()
+                + ">; rel=\"next\",";
+        }
+        link += "<" + currentRequest.replaceQueryParam("after").replaceQueryParam("per_page", limit).build().toUriString()
+            + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
 }
@@ -20,9 +20,13 @@ angular.module('sejourApp')
         // indicateur fumeux
         $scope.needResidencyCountry = currentApplication.type === 'premiere';
         
+        // Only a paid application can be made receivable, another agent may have verified it meanwhile
+        $scope.notPaid = false;
         $scope.verify = function () {
             Application.admissibility(currentApplication.id).then(function(result) {
             	$state.go('admissibility/list');
+            }, function(response) {
+            	$scope.notPaid = response.status === 409;
             });
         }
     });
@@ -1,18 +1,27 @@
 'use strict';
 
 angular.module('sejourApp')
-    .controller('FollowController', function ($scope, $state, $stateParams, $timeout, Application, applications) {
+    .controller('FollowController', function ($scope, $state, $stateParams, $timeout, Application, page) {
     	
     	$scope.tab = $stateParams.tab;
     	$scope.applications = [];
     	
-    	applications.forEach(function(application){
-    		if($scope.tab === 'cours' && application.receiptDate == null){
-    			$scope.applications.push(application);
-    		} else if($scope.tab === 'recus' && application.receiptDate != null && application.issuingDate == null){
-    			$scope.applications.push(application);
-    		} else if($scope.tab === 'delivres' && application.receiptDate != null && application.issuingDate != null){
-    			$scope.applications.push(application);
-    		}
-		});
+    	// The in progress and receipted tabs are the receipt and issuing worklists, the issued tab filters the followed applications
+    	function addPage(page) {
+    		page.applications.forEach(function(application){
+    			if($scope.tab !== 'delivres' || (application.receiptDate != null && application.issuingDate != null)){
+    				$scope.applications.push(application);
+    			}
+    		});
+    		$scope.next = page.next;
+    	}
+    	
+    	addPage(page);
+    	
+    	$scope.loadMore = function() {
+    		$scope.loading = true;
+    		Application.getNextPage($scope.next).then(addPage).finally(function() {
+    			$scope.loading = false;
+    		});
+    	}
     });
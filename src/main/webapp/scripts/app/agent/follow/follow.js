@@ -16,7 +16,12 @@ angular.module('sejourApp')
 	                }
 	            },
 	            resolve: {
-	            	applications: ['$stateParams', 'Application', function($stateParams, Application) {
+	            	page: ['$stateParams', 'Application', function($stateParams, Application) {
+	            		if($stateParams.tab === 'cours') {
+	            			return Application.getApplicationsForPermitReceipt();
+	            		} else if($stateParams.tab === 'recus') {
+	            			return Application.getApplicationsForPermitIssuing();
+	            		}
 	                    return Application.getApplicationsForFollow();
 	                }],
 	                translatePartialLoader: ['$translate', '$translatePartialLoader', function ($translate, $translatePartialLoader) {
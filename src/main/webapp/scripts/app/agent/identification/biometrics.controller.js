@@ -17,8 +17,7 @@ angular.module('sejourApp')
     		if($scope.webcamphoto){
 	    		$scope.photoValidated = !$scope.photoValidated;
 	    		if($scope.photoValidated){
-	    			var raw_image_data = $scope.webcamphoto.replace(/^data\:image\/\w+\;base64\,/, '');
-		    		File.uploadBiometrics(raw_image_data, "photo", currentApplication.id)
+		    		File.uploadBiometrics($scope.webcamphoto, "photo", currentApplication.id)
 				        .success(function(){
 				        })
 				        .error(function(){
@@ -46,8 +45,7 @@ angular.module('sejourApp')
     			$scope.signatureValidated = !$scope.signatureValidated;
     			if($scope.signatureValidated){
     				$scope.padsignature = signaturepad.toDataURL();
-    				var raw_image_data = $scope.padsignature.replace(/^data\:image\/\w+\;base64\,/, '');
-		    		File.uploadBiometrics(raw_image_data, "signature", currentApplication.id)
+		    		File.uploadBiometrics($scope.padsignature, "signature", currentApplication.id)
 				        .success(function(){
 				        })
 				        .error(function(){
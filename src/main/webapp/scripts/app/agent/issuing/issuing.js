@@ -16,9 +16,6 @@ angular.module('sejourApp')
 	                }
 	            },
 	            resolve: {
-	            	applications: ['$stateParams', 'Application', function($stateParams, Application) {
-	                    return Application.getApplicationsForPermitIssuing();
-	                }],
 	                translatePartialLoader: ['$translate', '$translatePartialLoader', function ($translate, $translatePartialLoader) {
 	                	$translatePartialLoader.addPart('issuing');
 	                	$translatePartialLoader.addPart('applicationNature');
@@ -1,15 +1,15 @@
 'use strict';
 
 angular.module('sejourApp')
-    .controller('IssuingSearchController', function ($scope, $state, $timeout, Application, applications) {
+    .controller('IssuingSearchController', function ($scope, $state, $timeout, Application) {
     	
     	$scope.tab = 'fingerprint';
     	$scope.currentApplication = undefined;
     	
     	function getCurrentApplication(foreignerNumber) {
-    		return applications.find(function(application) {
-				return application.identity.foreignerNumber === foreignerNumber;
-			});
+    		return Application.getApplicationsForPermitIssuing(foreignerNumber).then(function(page) {
+    			return page.applications[0];
+    		});
     	}
     	
     	function startFingerprint(currentApplication) {
@@ -27,12 +27,17 @@ angular.module('sejourApp')
     	}
     	
     	$scope.searchByFingerprint = function() {
-    		var currentApplication = getCurrentApplication('0123456789');
-    		startFingerprint(currentApplication);
+    		getCurrentApplication('0123456789').then(startFingerprint);
     	}
     	
-    	$scope.searchByForeignerNumber = function(toto) {
-    		$scope.currentApplication = getCurrentApplication($scope.foreignerNumber);
+    	$scope.searchByForeignerNumber = function(foreignerNumber) {
+    		if(!foreignerNumber) {
+    			$scope.currentApplication = undefined;
+    			return;
+    		}
+    		getCurrentApplication(foreignerNumber).then(function(currentApplication) {
+    			$scope.currentApplication = currentApplication;
+    		});
     	}
     	
     	$scope.goToIssuing = function() {
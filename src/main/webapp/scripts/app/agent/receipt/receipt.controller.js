@@ -1,33 +1,37 @@
 'use strict';
 
 angular.module('sejourApp')
-    .controller('ReceiptController', function ($scope, $state, $timeout, Application, applications) {
+    .controller('ReceiptController', function ($scope, $state, $timeout, Application, page) {
     	
-    	function calculateRandomApplications() {
+    	// The scanned applications are picked in the first page of the worklist, the current one is found by its foreigner number
+    	function calculateRandomApplications(currentApplication) {
+    		var applications = page.applications;
     		$scope.randomApplications = [];
     		var index = Math.floor(Math.random() * 1);
     		for(var i=0; i< 7 && index < applications.length; i++) {
     			var app = applications[index];
-    			if(app.identity.foreignerNumber !== "0123456789") {
+    			if(app.foreignerNumber !== "0123456789") {
     				$scope.randomApplications.push(app);
     			}
     			index += Math.floor(Math.random() * 2) + 1;
     		}
-			var currentApplication = applications.filter(function(application) {
-				return application.identity.foreignerNumber === "0123456789";
-			});
-    		if(currentApplication.length > 0){
-    			$scope.randomApplications.push(currentApplication[0]);
+    		if(currentApplication){
+    			$scope.randomApplications.push(currentApplication);
     		}
     	}
     	
     	$scope.launchScan = function() {
     		$scope.scan = true;
     		$scope.scanMatched = false;
+    		var currentApplication = Application.getApplicationsForPermitReceipt("0123456789").then(function(currentPage) {
+    			return currentPage.applications[0];
+    		});
     		$timeout(function(){
-    			calculateRandomApplications();
+    			return currentApplication;
+    		}, 2000).then(function(currentApplication) {
+    			calculateRandomApplications(currentApplication);
         		$scope.scanMatched = true;
-    		}, 2000);
+    		});
     	}
     	
     	$scope.receipt = function() {
@@ -16,7 +16,7 @@ angular.module('sejourApp')
 	                }
 	            },
 	            resolve: {
-	            	applications: ['$stateParams', 'Application', function($stateParams, Application) {
+	            	page: ['$stateParams', 'Application', function($stateParams, Application) {
 	                    return Application.getApplicationsForPermitReceipt();
 	                }],
 	                translatePartialLoader: ['$translate', '$translatePartialLoader', function ($translate, $translatePartialLoader) {
@@ -17,7 +17,7 @@ angular.module('sejourApp')
 	                }
 	            },
 	            resolve: {
-	            	applications: ['$stateParams', 'Application', function($stateParams, Application) {
+	            	page: ['$stateParams', 'Application', function($stateParams, Application) {
 	                    return Application.getApplicationsToReconstruct();
 	                }],
 	                translatePartialLoader: ['$translate', '$translatePartialLoader', function ($translate, $translatePartialLoader) {
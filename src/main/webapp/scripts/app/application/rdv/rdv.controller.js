@@ -1,42 +1,72 @@
 'use strict';
 
 angular.module('sejourApp')
-    .controller('RdvController', function ($scope, $state, Application, Rdv, currentApplication) {
+    .controller('RdvController', function ($scope, $state, Application, Rdv, currentApplication, timeSlots) {
+
+    	// Days are kept in the time zone of the server, where the slots are
+    	$scope.days = [];
+    	$scope.hours = [];
+    	Object.keys(timeSlots).sort().forEach(function(day) {
+    		$scope.days.push(moment.parseZone(day));
+    		$scope.hours.push(timeSlots[day]);
+    	});
 
     	$scope.datePickerOptions = {
     		inline: true,
 			format: 'DD/MM/YYYY',
 			locale: 'fr',
 			minDate: "moment",
-			enabledDates: Rdv.getRandomDates()
+			enabledDates: $scope.days
         }
     	
     	$scope.applicationNature = currentApplication.nature;
     	$scope.isRdvInFrance = currentApplication.nature === 'naturalisation' || currentApplication.nature === 'sejour_tmp_etudiant';
 
-    	$scope.days = [];
-    	$scope.hours = [];
-    	$scope.datePickerOptions.enabledDates.forEach(function(date) {
-    		$scope.days.push(date.valueOf());
-    		$scope.hours.push(Rdv.getRandomHours());
-    	});
-    	$scope.currentDay = $scope.datePickerOptions.enabledDates[0].format("DD/MM/YYYY");
-		$scope.currentHours = $scope.hours[0];
+    	var indexOf = function(date) {
+    		var formatted = date.format("DD/MM/YYYY");
+    		for (var i = 0; i < $scope.days.length; i++) {
+    			if ($scope.days[i].format("DD/MM/YYYY") === formatted) {
+    				return i;
+    			}
+    		}
+    		return -1;
+    	}
+
+    	$scope.currentIndex = $scope.days.length > 0 ? 0 : -1;
+    	$scope.currentDay = $scope.days.length > 0 ? $scope.days[0].format("DD/MM/YYYY") : '';
+		$scope.currentHours = $scope.days.length > 0 ? $scope.hours[0] : [];
 		$scope.currentHour = '';
     	
     	$scope.onSelectDate = function(date) {
     		$scope.currentHour = '';
-    		$scope.currentHours = date ? $scope.hours[$scope.days.indexOf(date.valueOf())] : '';
+    		$scope.currentIndex = date ? indexOf(date) : -1;
+    		$scope.currentHours = $scope.currentIndex >= 0 ? $scope.hours[$scope.currentIndex] : [];
+    	}
+    	
+    	var getRdvDate = function(hour) {
+    		var time = moment(hour, "HH:mm");
+    		return $scope.days[$scope.currentIndex].clone().hours(time.hours()).minutes(time.minutes()).toDate();
     	}
     	
+    	// The slot is held for a few minutes, so that it is still free when the appointment is confirmed
     	$scope.onSelectHour = function(hour) {
-    		$scope.currentHour = hour;
+    		Rdv.hold(currentApplication.id, getRdvDate(hour)).then(function() {
+    			$scope.currentHour = hour;
+    		}, function() {
+    			$scope.currentHour = '';
+    			$scope.currentHours.splice($scope.currentHours.indexOf(hour), 1);
+    		});
     	}
         
         $scope.save = function () {
-        	currentApplication.rdvDate = moment($scope.currentDay + " " + $scope.currentHour, "DD/MM/YYYY hh:mm").toDate();
+        	currentApplication.rdvDate = getRdvDate($scope.currentHour);
             Application.schedule(currentApplication).then(function(result) {
             	$state.go('account/application');
+            }, function(response) {
+            	// The slot was taken meanwhile, the free slots are loaded again
+            	if (response.status === 409) {
+            		$state.go($state.current, {}, {reload: true});
+            	}
             });
         };
         
@@ -19,6 +19,9 @@ angular.module('sejourApp')
                     currentApplication: ['$stateParams', 'Application', function($stateParams, Application) {
                         return Application.get({id : $stateParams.id});
                     }],
+                    timeSlots: ['Rdv', 'currentApplication', function(Rdv, currentApplication) {
+                        return Rdv.getRdvTimeSlot(currentApplication.nature);
+                    }],
                     translatePartialLoader: ['$translate', '$translatePartialLoader', 'I18N_APPLICATION', 'currentApplication', 
                                              function ($translate, $translatePartialLoader, I18N_APPLICATION, currentApplication) {
                     	$translatePartialLoader.addPart(I18N_APPLICATION[currentApplication.type][currentApplication.nature]);
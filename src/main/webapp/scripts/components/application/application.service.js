@@ -2,6 +2,21 @@
 
 angular.module('sejourApp')
     .factory('Application', function ($http) {
+
+    	// The worklists are paginated: a page holds its applications and the link to the next one, null on the last page
+    	var PAGE_SIZE = 50;
+
+    	var getNextLink = function (header) {
+    		var next = header ? /<([^>]*)>;\s*rel="next"/.exec(header) : null;
+    		return next ? next[1] : null;
+    	};
+
+    	var getPage = function (url, params) {
+    		return $http.get(url, {params: params}).then(function (response) {
+    			return {applications: response.data, next: getNextLink(response.headers('Link'))};
+    		});
+    	};
+
         return {
             create: function (type, nature) {
             	var formData = new FormData();
@@ -24,34 +39,27 @@ angular.module('sejourApp')
 	            });
 	        },
             getByStatus: function (status, email) {
-            	return $http.get('api/application/statut', {params: {status: status, email: email}}).then(function (response) {
-                    return response.data;
-                });
+            	return getPage('api/application/statut', {status: status, email: email, per_page: PAGE_SIZE});
             },
             getHistory: function (email) {
             	return $http.get('api/application/history', {params: {email: email}}).then(function (response) {
                     return response.data;
                 });
             },
-            getApplicationsForPermitReceipt: function () {
-            	return $http.get('api/application/receipt').then(function (response) {
-                    return response.data;
-                });
+            getApplicationsForPermitReceipt: function (foreignerNumber) {
+            	return getPage('api/application/receipt', {foreignerNumber: foreignerNumber, per_page: PAGE_SIZE});
             },
-            getApplicationsForPermitIssuing: function () {
-            	return $http.get('api/application/issuing').then(function (response) {
-                    return response.data;
-                });
+            getApplicationsForPermitIssuing: function (foreignerNumber) {
+            	return getPage('api/application/issuing', {foreignerNumber: foreignerNumber, per_page: PAGE_SIZE});
             },
             getApplicationsForFollow: function () {
-            	return $http.get('api/application/follow').then(function (response) {
-                    return response.data;
-                });
+            	return getPage('api/application/follow', {per_page: PAGE_SIZE});
             },
             getApplicationsToReconstruct: function () {
-            	return $http.get('api/application/reconstruct').then(function (response) {
-                    return response.data;
-                });
+            	return getPage('api/application/reconstruct', {per_page: PAGE_SIZE});
+            },
+            getNextPage: function (next) {
+            	return getPage(next);
             },
         	count: function() {
             	return $http.get('api/application/count').then(function (response) {
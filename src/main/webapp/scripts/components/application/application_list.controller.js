@@ -1,35 +1,21 @@
 'use strict';
 
 angular.module('sejourApp')
-    .controller('ApplicationListController', function ($scope, $state, applications) {
+    .controller('ApplicationListController', function ($scope, $state, Application, page) {
 
         $scope.listType = $state.current.data.listType;
-    	$scope.applications = applications;
-        
-        /** Verify if at least one document is not validated **/
-        var hasFamilyDocumentToCertify = function(application) {
-        	return Object.keys(application.identity.family).find(function(personType) {
-        		var persons = application.identity.family[personType];
-        		return persons.find(function(person) {
-    	    		return person.identity.documents.find(function(document) {
-    	        		return !document.validation;
-    	        	});
-    	    	});
-        	});
-        }
-        $scope.hasDocumentToCertify = function(application) {
-        	if(application.identity.validateOn && application.identity.familyValidateOn) {
-        		// Identity already certified so no documents to validate
-        		return false;
-        	}
-        	
-        	var hasDocToCertify = application.identity.documents.find(function(document) {
-        		return !document.validation;
-        	});
-        	if(hasDocToCertify || hasFamilyDocumentToCertify(application)) {
-        		return true;
-        	}
-        }
+    	$scope.applications = page.applications;
+    	$scope.next = page.next;
+    	
+    	$scope.loadMore = function() {
+    		$scope.loading = true;
+    		Application.getNextPage($scope.next).then(function(nextPage) {
+    			$scope.applications = $scope.applications.concat(nextPage.applications);
+    			$scope.next = nextPage.next;
+    		}).finally(function() {
+    			$scope.loading = false;
+    		});
+    	}
     	
     	$scope.getNationality = function(key){
     		return $scope.countries[key];
@@ -12,14 +12,17 @@ angular.module('sejourApp')
 		            headers: {'Content-Type': undefined}
 		        });
 	        },
-	    	uploadBiometrics: function (uri, type, idApplication) {
-	        	var fd = new FormData();
-		        fd.append('uri', uri);
-		        fd.append('type', type);
-		        fd.append('idApplication', idApplication);
-		        return $http.post("/fileUpload/biometrics", fd, {
+	    	uploadBiometrics: function (dataUrl, type, idApplication) {
+	    		// Send the decoded image as the request body rather than a base64 form field
+	    		var contentType = dataUrl.substring(dataUrl.indexOf(':') + 1, dataUrl.indexOf(';'));
+	    		var binary = atob(dataUrl.substring(dataUrl.indexOf(',') + 1));
+	    		var bytes = new Uint8Array(binary.length);
+	    		for (var i = 0; i < binary.length; i++) {
+	    			bytes[i] = binary.charCodeAt(i);
+	    		}
+		        return $http.post("/fileUpload/biometrics/" + idApplication + "/" + type, new Blob([bytes], {type: contentType}), {
 		            transformRequest: angular.identity,
-		            headers: {'Content-Type': undefined}
+		            headers: {'Content-Type': contentType}
 		        });
 	    	}
 	    };
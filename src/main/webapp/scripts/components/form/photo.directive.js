@@ -23,6 +23,11 @@ angular.module('sejourApp')
             		$scope.currentIndex = 0;
             	}
             	
+            	// Stored documents are displayed through their preview, rendered by the server
+            	$scope.src = function(doc) {
+            		return doc.fileName.indexOf('api/documents/') === 0 ? doc.fileName + '/preview' : doc.fileName;
+            	}
+            	
             	$scope.refresh();
             }],
             link: function(scope, element, attrs) {
@@ -0,0 +1,261 @@
+import java.io.IOException
+import java.net.{HttpURLConnection, URL}
+import java.util.{Arrays, HashSet}
+
+import com.mongodb.{BasicDBObject, MongoClient, MongoClientURI}
+import cz.jirutka.spring.embedmongo.EmbeddedMongoBuilder
+import fr.minint.sief.domain.enumeration.ApplicationNature._
+import fr.minint.sief.domain.enumeration.ApplicationStatus._
+import fr.minint.sief.domain.enumeration.{ApplicationNature, ApplicationStatus, ApplicationType, DocumentType, UserType}
+import fr.minint.sief.domain.{Application, Authority, Document, User}
+import org.bson.types.ObjectId
+import org.joda.time.DateTime
+import org.slf4j.LoggerFactory
+import org.springframework.data.mongodb.core.query.Criteria.where
+import org.springframework.data.mongodb.core.query.Query.query
+import org.springframework.data.mongodb.core.{MongoTemplate, SimpleMongoDbFactory}
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+import scala.util.Random
+
+/**
+ * The users and applications the load tests start from, seeded into the database of the application.
+ *
+ * The usagers are spread over the steps of the lifecycle, so that each scenario has its own population: usagers
+ * without application create one, receivable applications are booked by their usager, and the agents find paid,
+ * scheduled, identified and validated applications in their worklists. All the seeded users share the same
+ * password, and their emails are in the loadtest.local domain so that a new run removes the data of the previous one.
+ *
+ * The dev profile drops the database when the application starts, so the data is seeded once the application answers.
+ */
+class LoadTestData(usagerCount: Int, agentCount: Int) {
+
+    import LoadTestData._
+
+    private val log = LoggerFactory.getLogger(classOf[LoadTestData])
+
+    private val random = new Random(usagerCount)
+
+    /** Tells the emails of this run from the ones of the previous runs, which may still be cached by the application */
+    val runId = java.lang.Long.toString(System.currentTimeMillis, Character.MAX_RADIX)
+
+    val usagers: IndexedSeq[Usager] = (0 until usagerCount).map { i =>
+        val nature = Natures(random.nextInt(Natures.size))
+        val applicationType = if (nature == naturalisation) ApplicationType.naturalisation
+            else if (random.nextInt(5) == 0) ApplicationType.renouvellement else ApplicationType.premiere
+        val status = Statuses(i % Statuses.size)
+        Usager(s"usager.$i.$runId@$Domain", new ObjectId().toString, status.map(_ => new ObjectId().toString),
+            status, nature, applicationType)
+    }
+
+    val agents: IndexedSeq[String] = (0 until agentCount).map(i => s"agent.$i.$runId@$Domain")
+
+    @volatile private var template: MongoTemplate = _
+
+    /**
+     * Connect to the database, either an embedded mongod started on the port of the application, or the database
+     * of a running instance
+     *
+     * @param embedded true to start an embedded mongod
+     * @param port The port of the embedded mongod
+     * @param uri The URI of the database, with its credentials, when it is not embedded
+     * @param database The name of the database of the application
+     * @param username The user the application connects with, created in the embedded mongod
+     * @param password The password of the user
+     */
+    def connect(embedded: Boolean, port: Int, uri: String, database: String, username: String, password: String): Unit = {
+        val client = if (embedded) {
+            log.info("Starting an embedded mongod on port {}", port)
+            val embeddedClient = new EmbeddedMongoBuilder().version("2.6.0").bindIp("127.0.0.1").port(port).build()
+            embeddedClient.getDB(database).command(new BasicDBObject("createUser", username)
+                .append("pwd", password)
+                .append("roles", Arrays.asList("readWrite", "dbAdmin")))
+            embeddedClient
+        } else {
+            new MongoClient(new MongoClientURI(uri))
+        }
+        template = new MongoTemplate(new SimpleMongoDbFactory(client, database))
+    }
+
+    /**
+     * Wait until the application answers, which is after the dev profile has initialized the database
+     *
+     * @param baseURL The URL of the application
+     * @param timeout How long to wait for it
+     */
+    def awaitApplication(baseURL: String, timeout: FiniteDuration): Unit = {
+        val deadline = timeout.fromNow
+        log.info("Waiting for the application at {}", baseURL)
+        while (!isUp(baseURL)) {
+            if (deadline.isOverdue()) {
+                throw new IllegalStateException(s"The application did not answer at $baseURL within $timeout")
+            }
+            Thread.sleep(2000)
+        }
+    }
+
+    private def isUp(baseURL: String): Boolean = try {
+        val connection = new URL(baseURL + "/api/account").openConnection().asInstanceOf[HttpURLConnection]
+        connection.setConnectTimeout(1000)
+        connection.getResponseCode
+        connection.disconnect()
+        true
+    } catch {
+        case e: IOException => false
+    }
+
+    /**
+     * Remove the data of the previous runs and insert the users and applications of this one
+     */
+    def seed(): Unit = {
+        val seeded = query(where("email").regex(s"@${Domain.replace(".", "\\.")}$$"))
+        template.remove(seeded, classOf[Application])
+        template.remove(seeded, classOf[User])
+
+        // BCrypt is slow on purpose, and all the users share the same password
+        val encodedPassword = new BCryptPasswordEncoder().encode(Password)
+        val users = usagers.map(usager => newUser(usager.email, usager.userId, encodedPassword, UserType.individual,
+                AuthoritiesUsager)) ++
+            agents.map(agent => newUser(agent, new ObjectId().toString, encodedPassword, UserType.agent,
+                AuthoritiesAgent))
+        users.grouped(BatchSize).foreach(batch => template.insert(batch.asJava, classOf[User]))
+
+        val applications = usagers.filter(_.status.isDefined).map(newApplication)
+        applications.grouped(BatchSize).foreach(batch => template.insert(batch.asJava, classOf[Application]))
+        log.info("Seeded {} usagers, {} agents and {} applications",
+            Array[AnyRef](Int.box(usagers.size), Int.box(agents.size), Int.box(applications.size)): _*)
+    }
+
+    /**
+     * Get the key a registered user activates the account with, as sent by email
+     *
+     * @param email The email of the user
+     * @return The activation key, or None if the user is not registered
+     */
+    def activationKey(email: String): Option[String] =
+        Option(template.findOne(query(where("email").is(email)), classOf[User])).flatMap(user => Option(user.getActivationKey))
+
+    /** Usagers without application, who create one */
+    def applicantFeeder: Array[Map[String, String]] = usagers.filter(_.status.isEmpty)
+        .map(usager => Map("email" -> usager.email, "nature" -> usager.nature.name, "type" -> usager.applicationType.name))
+        .toArray
+
+    /** Usagers whose application is receivable, who book an appointment */
+    def bookerFeeder: Array[Map[String, String]] = usagers.filter(_.status.contains(receivable))
+        .map(usager => Map("email" -> usager.email, "applicationId" -> usager.applicationId.get,
+            "nature" -> usager.nature.name, "type" -> usager.applicationType.name))
+        .toArray
+
+    def agentFeeder: Array[Map[String, String]] = agents.map(agent => Map("email" -> agent)).toArray
+
+    /** New users, who register */
+    def registrationFeeder: Iterator[Map[String, String]] =
+        Iterator.from(0).map(i => Map("email" -> s"register.$i.$runId@$Domain"))
+
+    private def newUser(email: String, id: String, encodedPassword: String, userType: UserType,
+                        authorities: Seq[String]): User = {
+        val user = new User()
+        user.setId(id)
+        user.setEmail(email)
+        user.setPassword(encodedPassword)
+        user.setType(userType)
+        user.setLangKey("fr")
+        user.setActivated(true)
+        user.getIdentity.setLastName("Load")
+        user.getIdentity.setFirstName("Test")
+        user.setAuthorities(new HashSet[Authority](authorities.map { name =>
+            val authority = new Authority()
+            authority.setName(name)
+            authority
+        }.asJava))
+        user
+    }
+
+    private def newApplication(usager: Usager): Application = {
+        val status = usager.status.get
+        val created = DateTime.now().minusDays(30 + random.nextInt(60)).withMillisOfSecond(0)
+        val application = new Application()
+        application.setId(usager.applicationId.get)
+        application.setEmail(usager.email)
+        application.setUserId(usager.userId)
+        application.setLangKey("fr")
+        application.setNature(usager.nature)
+        application.setType(usager.applicationType)
+        application.setStatut(status)
+        application.setCreationDate(created)
+        application.setModificationDate(created)
+
+        val identity = application.getIdentity
+        identity.setLastName("Load")
+        identity.setFirstName("Test")
+        identity.setNationality("KR")
+        identity.setBirthCountry("KR")
+        identity.setBirthDate(new DateTime(1990, 1, 1, 0, 0).plusDays(random.nextInt(3650)))
+        identity.setPassportNumber(f"${random.nextInt(10000000)}%07d")
+        identity.setDocuments(Arrays.asList(newDocument(DocumentType.passport), newDocument(DocumentType.birthAct)))
+
+        // Each status carries the dates of the steps before it
+        if (status != draft) {
+            application.setPaymentDate(created.plusDays(1))
+        }
+        if (status.compareTo(paid) > 0) {
+            application.setAdmissibility(created.plusDays(3))
+        }
+        if (status.compareTo(receivable) > 0) {
+            application.setRdvDate(created.plusDays(20).withTime(9 + random.nextInt(8), 0, 0, 0))
+        }
+        if (status.compareTo(scheduled) > 0) {
+            application.setBiometricsDate(application.getRdvDate)
+            identity.validateNewDocuments(application.getRdvDate)
+        }
+        if (status == validated) {
+            application.setDecisionDate(created.plusDays(25))
+            application.getProject.setValidateOn(application.getDecisionDate)
+        }
+        application
+    }
+
+    private def newDocument(documentType: DocumentType): Document = {
+        val document = new Document()
+        document.setId(java.lang.Long.toString(random.nextLong(), Character.MAX_RADIX))
+        document.setType(documentType)
+        document.setName(s"$documentType.jpg")
+        document.setFileName(s"assets/fileUpload/$documentType.jpg")
+        document
+    }
+}
+
+object LoadTestData {
+
+    val Domain = "loadtest.local"
+
+    val Password = "loadtest"
+
+    private val BatchSize = 1000
+
+    private val AuthoritiesUsager = Seq("ROLE_USER", "ROLE_USAGER")
+
+    private val AuthoritiesAgent = Seq("ROLE_AGENT")
+
+    /** Share of the usagers, in percent, at each step: None for the ones who have no application yet */
+    private val Shares: Seq[(Option[ApplicationStatus], Int)] = Seq(
+        None -> 20,
+        Some(draft) -> 10,
+        Some(paid) -> 20,
+        Some(receivable) -> 20,
+        Some(scheduled) -> 15,
+        Some(identity_verified) -> 10,
+        Some(validated) -> 5)
+
+    private val Statuses: IndexedSeq[Option[ApplicationStatus]] =
+        Shares.flatMap { case (status, share) => Seq.fill(share)(status) }.toIndexedSeq
+
+    /** Students are the bulk of the applications, and the temporary ones are the ones receipted by the agents */
+    private val Natures: IndexedSeq[ApplicationNature] = IndexedSeq(sejour_etudiant, sejour_etudiant,
+        sejour_tmp_etudiant, sejour_tmp_etudiant, sejour_salarie, sejour_competences_talents, naturalisation)
+
+    case class Usager(email: String, userId: String, applicationId: Option[String], status: Option[ApplicationStatus],
+                      nature: ApplicationNature, applicationType: ApplicationType)
+}
@@ -0,0 +1,165 @@
+package fr.minint.sief.domain.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Test class for the ISO8601UtcDateTime conversions, and the Jackson serializer and deserializer using them.
+ * Joda is the reference.
+ *
+ * @see ISO8601UtcDateTime
+ */
+public class ISO8601UtcDateTimeTest {
+
+    private static final DateTimeFormatter JODA_FORMATTER = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZoneUTC();
+
+    private static final DateTimeFormatter JODA_FORMATTER_WITH_MILLIS = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZoneUTC();
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Test
+    public void testEpoch() {
+        assertThat(format(0L)).isEqualTo("1970-01-01T00:00:00Z");
+        assertThat(parse("1970-01-01T00:00:00Z")).isEqualTo(0L);
+        assertThat(parse("1970-01-01T00:00:00.000Z")).isEqualTo(0L);
+    }
+
+    @Test
+    public void testBefore1970() {
+        assertThat(format(-1L)).isEqualTo("1969-12-31T23:59:59Z");
+        assertThat(parse("1969-12-31T23:59:59.999Z")).isEqualTo(-1L);
+        assertSameAsJoda(new DateTime(1815, 6, 18, 11, 30, 15, DateTimeZone.UTC).getMillis());
+        assertSameAsJoda(new DateTime(1, 1, 1, 0, 0, 0, DateTimeZone.UTC).getMillis());
+    }
+
+    @Test
+    public void testFebruary29() {
+        // Leap year, century leap year
+        assertSameAsJoda(new DateTime(2016, 2, 29, 12, 0, 0, DateTimeZone.UTC).getMillis());
+        assertSameAsJoda(new DateTime(2000, 2, 29, 23, 59, 59, DateTimeZone.UTC).getMillis());
+        assertSameAsJoda(new DateTime(1600, 2, 29, 0, 0, 0, DateTimeZone.UTC).getMillis());
+        // The day after February 28 of a common year and of a century common year
+        assertThat(format(new DateTime(2015, 2, 28, 0, 0, 0, DateTimeZone.UTC).plusDays(1).getMillis())).isEqualTo("2015-03-01T00:00:00Z");
+        assertThat(format(new DateTime(1900, 2, 28, 0, 0, 0, DateTimeZone.UTC).plusDays(1).getMillis())).isEqualTo("1900-03-01T00:00:00Z");
+
+        assertThat(parse("2016-02-29T00:00:00Z")).isEqualTo(new DateTime(2016, 2, 29, 0, 0, 0, DateTimeZone.UTC).getMillis());
+        assertThat(parse("2000-02-29T00:00:00Z")).isEqualTo(new DateTime(2000, 2, 29, 0, 0, 0, DateTimeZone.UTC).getMillis());
+        assertThat(parse("2015-02-29T00:00:00Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("1900-02-29T00:00:00Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+    }
+
+    @Test
+    public void testMillis() {
+        long millis = new DateTime(2015, 11, 5, 10, 20, 30, 123, DateTimeZone.UTC).getMillis();
+        assertThat(parse("2015-11-05T10:20:30.123Z")).isEqualTo(millis);
+        // Formatting truncates to the second
+        assertThat(format(millis)).isEqualTo("2015-11-05T10:20:30Z");
+        assertThat(parse("2015-11-05T10:20:30.12xZ")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05T10:20:30,123Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThat(parse("2015-11-05T10:20:30")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05 10:20:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05T10:20:30.1Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-13-05T10:20:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-00-05T10:20:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-04-31T10:20:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05T24:00:00Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05T10:60:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("2015-11-05T10:20:60Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+        assertThat(parse("+015-11-05T10:20:30Z")).isEqualTo(ISO8601UtcDateTime.INVALID);
+    }
+
+    @Test
+    public void testInvalidFallsBackToJoda() throws IOException {
+        for (String text : new String[] {"2015-11-05T10:20:30+01:00", "2015-11-05T10:20:30.1Z", "2015-11-05T10:20Z",
+                "2015-11-05", " 2015-11-05T10:20:30Z "}) {
+            assertThat(deserialize(text).getMillis())
+                    .as(text)
+                    .isEqualTo(ISODateTimeFormat.dateTimeParser().parseMillis(text.trim()));
+        }
+    }
+
+    @Test
+    public void testYearsOutOfRange() throws IOException {
+        long year0 = new DateTime(0, 1, 1, 0, 0, 0, DateTimeZone.UTC).getMillis();
+        long year9999 = new DateTime(9999, 12, 31, 23, 59, 59, 999, DateTimeZone.UTC).getMillis();
+        assertSameAsJoda(year0);
+        assertSameAsJoda(year9999);
+
+        char[] buffer = new char[ISO8601UtcDateTime.LENGTH];
+        assertThat(ISO8601UtcDateTime.format(year0 - 1, buffer)).isFalse();
+        assertThat(ISO8601UtcDateTime.format(year9999 + 1, buffer)).isFalse();
+        assertThat(ISO8601UtcDateTime.format(Long.MIN_VALUE, buffer)).isFalse();
+        assertThat(ISO8601UtcDateTime.format(Long.MAX_VALUE, buffer)).isFalse();
+
+        // The serializer falls back to Joda
+        for (long millis : new long[] {year0 - 1, year9999 + 1}) {
+            assertThat(serialize(new DateTime(millis))).isEqualTo("\"" + JODA_FORMATTER.print(millis) + "\"");
+        }
+    }
+
+    @Test
+    public void testRandomInstants() throws IOException {
+        long min = new DateTime(0, 1, 1, 0, 0, 0, DateTimeZone.UTC).getMillis();
+        long max = new DateTime(9999, 12, 31, 23, 59, 59, 999, DateTimeZone.UTC).getMillis();
+        Random random = new Random(20151105L);
+        for (int i = 0; i < 200000; i++) {
+            assertSameAsJoda(min + (long) (random.nextDouble() * (max - min)));
+        }
+        DateTime now = DateTime.now();
+        assertThat(serialize(now)).isEqualTo("\"" + JODA_FORMATTER.print(now) + "\"");
+        assertThat(deserialize(JODA_FORMATTER_WITH_MILLIS.print(now)).getMillis()).isEqualTo(now.getMillis());
+    }
+
+    private static void assertSameAsJoda(long millis) {
+        String expected = JODA_FORMATTER.print(millis);
+        assertThat(format(millis)).as("format of %d", millis).isEqualTo(expected);
+        assertThat(parse(expected)).as("parse of %s", expected).isEqualTo(Math.floorDiv(millis, 1000L) * 1000L);
+        String withMillis = JODA_FORMATTER_WITH_MILLIS.print(millis);
+        assertThat(parse(withMillis)).as("parse of %s", withMillis).isEqualTo(millis);
+    }
+
+    private static String format(long millis) {
+        char[] buffer = new char[ISO8601UtcDateTime.LENGTH];
+        assertThat(ISO8601UtcDateTime.format(millis, buffer)).as("format of %d", millis).isTrue();
+        return new String(buffer);
+    }
+
+    private static long parse(String text) {
+        // Parse from the middle of a larger array, as from the buffer of a JSON parser
+        char[] chars = ("[\"" + text + "\"]").toCharArray();
+        return ISO8601UtcDateTime.parse(chars, 2, text.length());
+    }
+
+    private static String serialize(DateTime value) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            new CustomDateTimeSerializer().serialize(value, generator, null);
+        }
+        return writer.toString();
+    }
+
+    private static DateTime deserialize(String text) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser("\"" + text + "\"")) {
+            parser.nextToken();
+            return new CustomDateTimeDeserializer().deserialize(parser, null);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package fr.minint.sief.service.util;
+
+import static fr.minint.sief.service.util.SlotIndexTest.bits;
+import static fr.minint.sief.service.util.SlotIndexTest.calendar;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for the SlotHolds of the appointment slots, and their effect on the SlotIndex.
+ *
+ * @see SlotHolds
+ */
+public class SlotHoldsTest {
+
+    private static final LocalDate DAY = new LocalDate(2015, 11, 9);
+
+    private static final long LEASE_MILLIS = 1000L;
+
+    private static final long TICK_MILLIS = 100L;
+
+    private SlotIndex index;
+
+    private SlotHolds holds;
+
+    @Before
+    public void setup() {
+        index = new SlotIndex();
+        index.rebuild(Collections.singletonList(calendar("paris", DAY, 1, 2)).iterator());
+        holds = new SlotHolds(index, LEASE_MILLIS, TICK_MILLIS);
+    }
+
+    @Test
+    public void testHoldLimitedToFreePlaces() {
+        assertThat(holds.hold("user1", "paris", DAY, 1, 2)).isTrue();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(1);
+        assertThat(isFree(1)).isTrue();
+
+        // The last free place is held, the slot is cleared from the index
+        assertThat(holds.hold("user2", "paris", DAY, 1, 2)).isTrue();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(2);
+        assertThat(isFree(1)).isFalse();
+
+        assertThat(holds.hold("user3", "paris", DAY, 1, 2)).isFalse();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(2);
+
+        // Fewer free places than held ones, after a reservation on another instance
+        assertThat(holds.hold("user3", "paris", DAY, 2, 0)).isFalse();
+        assertThat(holds.getHolds("paris", DAY, 2)).isEqualTo(0);
+        assertThat(isFree(2)).isFalse();
+    }
+
+    @Test
+    public void testConcurrentHoldsLimitedToFreePlaces() throws Exception {
+        int users = 64;
+        int free = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String user = "user" + i;
+                tasks.add(() -> holds.hold(user, "paris", DAY, 1, free));
+            }
+            int held = 0;
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                held += result.get() ? 1 : 0;
+            }
+            assertThat(held).isEqualTo(free);
+            assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(free);
+            assertThat(isFree(1)).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHoldReplacesPreviousHold() {
+        assertThat(holds.hold("user1", "paris", DAY, 1, 1)).isTrue();
+        assertThat(isFree(1)).isFalse();
+
+        assertThat(holds.hold("user1", "paris", DAY, 2, 1)).isTrue();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(0);
+        assertThat(holds.getHolds("paris", DAY, 2)).isEqualTo(1);
+        assertThat(isFree(1)).isTrue();
+        assertThat(isFree(2)).isFalse();
+
+        // The previous hold is released even when the new one fails
+        assertThat(holds.hold("user2", "paris", DAY, 1, 1)).isTrue();
+        assertThat(holds.hold("user1", "paris", DAY, 1, 1)).isFalse();
+        assertThat(holds.getHolds("paris", DAY, 2)).isEqualTo(0);
+        assertThat(isFree(2)).isTrue();
+        assertThat(holds.take("user1", "paris", DAY, 2)).isFalse();
+    }
+
+    @Test
+    public void testTake() {
+        assertThat(holds.hold("user1", "paris", DAY, 1, 2)).isTrue();
+
+        assertThat(holds.take("user1", "paris", DAY, 2)).isFalse();
+        assertThat(holds.take("user2", "paris", DAY, 1)).isFalse();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(1);
+
+        assertThat(holds.take("user1", "paris", DAY, 1)).isTrue();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(0);
+        // A place is taken once
+        assertThat(holds.take("user1", "paris", DAY, 1)).isFalse();
+
+        // The reservation updates the free places
+        holds.update("paris", DAY, 1, 1);
+        assertThat(isFree(1)).isTrue();
+        holds.update("paris", DAY, 1, 0);
+        assertThat(isFree(1)).isFalse();
+    }
+
+    @Test
+    public void testUpdateKeepsHeldPlaces() {
+        assertThat(holds.hold("user1", "paris", DAY, 1, 2)).isTrue();
+
+        // Another place is reserved, the last free place is held
+        holds.update("paris", DAY, 1, 1);
+        assertThat(isFree(1)).isFalse();
+        assertThat(holds.hold("user2", "paris", DAY, 1, 1)).isFalse();
+
+        holds.update("paris", DAY, 1, 3);
+        assertThat(isFree(1)).isTrue();
+    }
+
+    @Test
+    public void testExpireAfterLease() {
+        long start = System.currentTimeMillis();
+        assertThat(holds.hold("user1", "paris", DAY, 1, 1)).isTrue();
+        assertThat(isFree(1)).isFalse();
+
+        // Not expired before the lease
+        holds.expire(start);
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(1);
+        assertThat(isFree(1)).isFalse();
+
+        long end = System.currentTimeMillis() + LEASE_MILLIS + TICK_MILLIS;
+        holds.expire(end);
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(0);
+        assertThat(isFree(1)).isTrue();
+        // An expired hold cannot be taken
+        assertThat(holds.take("user1", "paris", DAY, 1)).isFalse();
+
+        // The user can hold again
+        assertThat(holds.hold("user1", "paris", DAY, 1, 1)).isTrue();
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(1);
+        assertThat(holds.take("user1", "paris", DAY, 1)).isTrue();
+    }
+
+    @Test
+    public void testExpireDoesNotReleaseTakenHold() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        assertThat(holds.hold("user1", "paris", DAY, 1, 2)).isTrue();
+        assertThat(holds.take("user1", "paris", DAY, 1)).isTrue();
+        // A hold of another user, with a later deadline
+        Thread.sleep(3 * TICK_MILLIS);
+        assertThat(holds.hold("user2", "paris", DAY, 1, 1)).isTrue();
+
+        // The taken hold is due, but its place was already released
+        holds.expire(start + LEASE_MILLIS + TICK_MILLIS);
+        assertThat(holds.getHolds("paris", DAY, 1)).isEqualTo(1);
+        assertThat(isFree(1)).isFalse();
+    }
+
+    @Test
+    public void testApplyAfterRebuild() {
+        assertThat(holds.hold("user1", "paris", DAY, 1, 1)).isTrue();
+        assertThat(holds.hold("user2", "paris", DAY, 2, 2)).isTrue();
+
+        // The rebuild reads the free places from the calendars, ignoring the holds
+        index.rebuild(Collections.singletonList(calendar("paris", DAY, 1, 2)).iterator());
+        assertThat(index.getFreeSlots("paris", DAY).get(DAY)).isEqualTo(bits(1, 2));
+
+        holds.apply();
+        assertThat(index.getFreeSlots("paris", DAY).get(DAY)).isEqualTo(bits(2));
+
+        assertThat(holds.take("user1", "paris", DAY, 1)).isTrue();
+        holds.update("paris", DAY, 1, 0);
+        holds.apply();
+        assertThat(index.getFreeSlots("paris", DAY).get(DAY)).isEqualTo(bits(2));
+    }
+
+    private boolean isFree(int slot) {
+        BitSet free = index.getFreeSlots("paris", DAY).get(DAY);
+        return free != null && free.get(slot);
+    }
+}
@@ -0,0 +1,101 @@
+package fr.minint.sief.service.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import fr.minint.sief.domain.RdvCalendar;
+
+/**
+ * Test class for the SlotIndex of the free appointment slots.
+ *
+ * @see SlotIndex
+ */
+public class SlotIndexTest {
+
+    private static final LocalDate DAY = new LocalDate(2015, 11, 9);
+
+    @Test
+    public void testRebuild() {
+        SlotIndex index = new SlotIndex();
+        assertThat(index.getFreeSlots("paris", DAY)).isEmpty();
+
+        index.rebuild(Arrays.asList(
+                calendar("paris", DAY, 0, 2, 63, 64, RdvCalendar.SLOTS_PER_DAY - 1),
+                calendar("paris", DAY.plusDays(1)),
+                calendar("lyon", DAY, 10)).iterator());
+
+        SortedMap<LocalDate, BitSet> paris = index.getFreeSlots("paris", DAY);
+        // The days without free slots are left out
+        assertThat(paris.keySet()).containsExactly(DAY);
+        assertThat(paris.get(DAY)).isEqualTo(bits(0, 2, 63, 64, RdvCalendar.SLOTS_PER_DAY - 1));
+        assertThat(index.getFreeSlots("lyon", DAY).get(DAY)).isEqualTo(bits(10));
+        assertThat(index.getFreeSlots("marseille", DAY)).isEmpty();
+
+        // The rebuild replaces the whole index
+        index.rebuild(Collections.singletonList(calendar("lyon", DAY, 11)).iterator());
+        assertThat(index.getFreeSlots("paris", DAY)).isEmpty();
+        assertThat(index.getFreeSlots("lyon", DAY).get(DAY)).isEqualTo(bits(11));
+    }
+
+    @Test
+    public void testGetFreeSlotsFrom() {
+        SlotIndex index = new SlotIndex();
+        index.rebuild(Arrays.asList(
+                calendar("paris", DAY.minusDays(1), 1),
+                calendar("paris", DAY, 2),
+                calendar("paris", DAY.plusDays(1), 3)).iterator());
+
+        assertThat(index.getFreeSlots("paris", DAY).keySet()).containsExactly(DAY, DAY.plusDays(1));
+        assertThat(index.getFreeSlots("paris", DAY.plusDays(2))).isEmpty();
+    }
+
+    @Test
+    public void testSet() {
+        SlotIndex index = new SlotIndex();
+        index.rebuild(Collections.singletonList(calendar("paris", DAY, 1, 64)).iterator());
+
+        index.set("paris", DAY, 1, false);
+        index.set("paris", DAY, 65, true);
+        assertThat(index.getFreeSlots("paris", DAY).get(DAY)).isEqualTo(bits(64, 65));
+
+        index.set("paris", DAY, 64, false);
+        index.set("paris", DAY, 65, false);
+        assertThat(index.getFreeSlots("paris", DAY)).isEmpty();
+
+        // A slot of a day or site which is not indexed is ignored
+        index.set("paris", DAY.plusDays(1), 1, true);
+        index.set("lyon", DAY, 1, true);
+        assertThat(index.getFreeSlots("paris", DAY.plusDays(1))).isEmpty();
+        assertThat(index.getFreeSlots("lyon", DAY)).isEmpty();
+    }
+
+    static RdvCalendar calendar(String site, LocalDate day, int... freeSlots) {
+        List<Integer> free = new ArrayList<>(Collections.nCopies(RdvCalendar.SLOTS_PER_DAY, 0));
+        for (int slot : freeSlots) {
+            free.set(slot, 1);
+        }
+        RdvCalendar calendar = new RdvCalendar();
+        calendar.setSite(site);
+        calendar.setDay(day.toDateTimeAtStartOfDay());
+        calendar.setCapacity(new ArrayList<>(Collections.nCopies(RdvCalendar.SLOTS_PER_DAY, 1)));
+        calendar.setFree(free);
+        return calendar;
+    }
+
+    static BitSet bits(int... slots) {
+        BitSet bits = new BitSet();
+        for (int slot : slots) {
+            bits.set(slot);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,112 @@
+package fr.minint.sief.web.rest;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.minint.sief.Application;
+import fr.minint.sief.config.MongoConfiguration;
+import fr.minint.sief.domain.enumeration.ApplicationNature;
+import fr.minint.sief.domain.enumeration.ApplicationStatus;
+import fr.minint.sief.domain.enumeration.ApplicationType;
+import fr.minint.sief.service.ApplicationService;
+import fr.minint.sief.web.rest.mapper.ApplicationMapper;
+
+/**
+ * Test class for the ApplicationResource REST controller.
+ *
+ * @see ApplicationResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+@Import(MongoConfiguration.class)
+public class ApplicationResourceTest {
+
+    @Inject
+    private ApplicationMapper applicationMapper;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private ApplicationService mockApplicationService;
+
+    private MockMvc restApplicationMockMvc;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        ApplicationResource applicationResource = new ApplicationResource();
+        ReflectionTestUtils.setField(applicationResource, "applicationService", mockApplicationService);
+        ReflectionTestUtils.setField(applicationResource, "applicationMapper", applicationMapper);
+        ReflectionTestUtils.setField(applicationResource, "objectMapper", objectMapper);
+        this.restApplicationMockMvc = MockMvcBuilders.standaloneSetup(applicationResource).build();
+    }
+
+    @Test
+    public void testGetUserApplications() throws Exception {
+        when(mockApplicationService.getUserApplications()).thenReturn(Stream.of(
+                application("app-2", ApplicationStatus.paid, ApplicationNature.sejour_etudiant),
+                application("app-1", ApplicationStatus.validated, ApplicationNature.sejour_salarie)));
+
+        restApplicationMockMvc.perform(get("/api/application")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value("app-2"))
+                .andExpect(jsonPath("$[0].statut").value("paid"))
+                .andExpect(jsonPath("$[0].nature").value("sejour_etudiant"))
+                .andExpect(jsonPath("$[0].email").value("user@localhost"))
+                .andExpect(jsonPath("$[1].id").value("app-1"))
+                .andExpect(jsonPath("$[1].statut").value("validated"))
+                .andExpect(jsonPath("$[1].nature").value("sejour_salarie"));
+    }
+
+    @Test
+    public void testGetUserApplicationsWhenNone() throws Exception {
+        when(mockApplicationService.getUserApplications()).thenReturn(Stream.empty());
+
+        restApplicationMockMvc.perform(get("/api/application")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+
+    private static fr.minint.sief.domain.Application application(String id, ApplicationStatus status, ApplicationNature nature) {
+        fr.minint.sief.domain.Application application = new fr.minint.sief.domain.Application();
+        application.setId(id);
+        application.setEmail("user@localhost");
+        application.setStatut(status);
+        application.setNature(nature);
+        application.setType(ApplicationType.premiere);
+        return application;
+    }
+}
@@ -3,6 +3,9 @@ package fr.minint.sief.web.rest;
 import fr.minint.sief.Application;
 import fr.minint.sief.config.MongoConfiguration;
 import fr.minint.sief.repository.UserRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -18,6 +21,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import javax.inject.Inject;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,15 +41,31 @@ public class UserResourceTest {
     @Inject
     private UserRepository userRepository;
 
+    @Inject
+    private ObjectMapper objectMapper;
+
     private MockMvc restUserMockMvc;
 
     @Before
     public void setup() {
         UserResource userResource = new UserResource();
         ReflectionTestUtils.setField(userResource, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userResource, "objectMapper", objectMapper);
         this.restUserMockMvc = MockMvcBuilders.standaloneSetup(userResource).build();
     }
 
+    @Test
+    public void testGetAllUsers() throws Exception {
+        restUserMockMvc.perform(get("/api/users")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$", hasSize((int) userRepository.count())))
+                .andExpect(jsonPath("$[*].email", hasItem("admin@localhost")))
+                .andExpect(jsonPath("$[*].lastName", hasItem("Administrator")));
+    }
+
     @Test
     public void testGetExistingUser() throws Exception {
         restUserMockMvc.perform(get("/api/users/admin")